@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data;
+
+/**
+ * Type of the values held by a table column.
+ *
+ * Oct 18, 2026 9:02:47 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public enum ColumnType {
+
+    /**
+     * Custom ID, such as pat_1 or enc_1.
+     */
+    ID,
+    STRING,
+    /**
+     * Date without time, held as {@link java.util.Date}.
+     */
+    DATE,
+    /**
+     * Date with time, held as {@link java.util.Date}.
+     */
+    TIMESTAMP,
+    /**
+     * Numeric value, held as {@link java.math.BigDecimal}.
+     */
+    DECIMAL
+
+}
@@ -73,6 +73,37 @@ public final class FileHeaders {
         "medication_display"
     };
 
+    public static String[] NORMALIZED_OBSERVATION = {
+        "id",
+        "effective",
+        "patient_id",
+        "encounter_id",
+        "observation_code_id",
+        "component_value",
+        "component_unit",
+        "component_type",
+        "category"
+    };
+    public static String[] NORMALIZED_MEDICATION_ADMINISTRATION = {
+        "id",
+        "status",
+        "effective",
+        "patient_id",
+        "encounter_id",
+        "medication_id"
+    };
+    public static String[] OBSERVATION_CODE = {
+        "id",
+        "code",
+        "code_display"
+    };
+    public static String[] MEDICATION = {
+        "id",
+        "medication_code",
+        "medication_system",
+        "medication_display"
+    };
+
     public static String[] LOCATION = {
         "id",
         "name",
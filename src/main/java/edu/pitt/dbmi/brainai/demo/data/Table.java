@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data;
+
+import static edu.pitt.dbmi.brainai.demo.data.ColumnType.DATE;
+import static edu.pitt.dbmi.brainai.demo.data.ColumnType.DECIMAL;
+import static edu.pitt.dbmi.brainai.demo.data.ColumnType.ID;
+import static edu.pitt.dbmi.brainai.demo.data.ColumnType.STRING;
+import static edu.pitt.dbmi.brainai.demo.data.ColumnType.TIMESTAMP;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Output tables, with their column names and column types.
+ *
+ * Oct 18, 2026 9:05:10 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public enum Table {
+
+    PATIENT("patients", "pat_", FileHeaders.PATIENT,
+            ID, DATE, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING),
+    ENCOUNTER("encounters", "enc_", FileHeaders.ENCOUNTER,
+            ID, TIMESTAMP, TIMESTAMP, ID, STRING, STRING, STRING, STRING, ID, STRING),
+    OBSERVATION("observations", "obs_", FileHeaders.OBSERVATION,
+            ID, TIMESTAMP, ID, ID, STRING, STRING, DECIMAL, STRING, STRING, STRING),
+    MEDICATION_ADMINISTRATION("medication_administrations", "med_admin_", FileHeaders.MEDICATION_ADMINISTRATION,
+            ID, STRING, TIMESTAMP, ID, ID, STRING, STRING, STRING),
+    LOCATION("locations", "location_", FileHeaders.LOCATION,
+            ID, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING, STRING),
+    ENCOUNTER_LOCATION("encounter_locations", null, FileHeaders.ENCOUNTER_LOCATION,
+            ID, TIMESTAMP, TIMESTAMP, ID),
+    // normalized layout, see NormalizingOutputSink
+    NORMALIZED_OBSERVATION("observations", "obs_", FileHeaders.NORMALIZED_OBSERVATION,
+            ID, TIMESTAMP, ID, ID, ID, DECIMAL, STRING, STRING, STRING),
+    NORMALIZED_MEDICATION_ADMINISTRATION("medication_administrations", "med_admin_", FileHeaders.NORMALIZED_MEDICATION_ADMINISTRATION,
+            ID, STRING, TIMESTAMP, ID, ID, ID),
+    OBSERVATION_CODE("observation_codes", "obs_code_", FileHeaders.OBSERVATION_CODE,
+            ID, STRING, STRING),
+    MEDICATION("medications", "med_", FileHeaders.MEDICATION,
+            ID, STRING, STRING, STRING);
+
+    private final String name;
+    private final String idPrefix;
+    private final String[] headers;
+    private final ColumnType[] columnTypes;
+
+    private Table(String name, String idPrefix, String[] headers, ColumnType... columnTypes) {
+        if (headers.length != columnTypes.length) {
+            throw new IllegalArgumentException(String.format("Table %s has %d headers but %d column types.", name, headers.length, columnTypes.length));
+        }
+
+        this.name = name;
+        this.idPrefix = idPrefix;
+        this.headers = headers;
+        this.columnTypes = columnTypes;
+    }
+
+    /**
+     * Get the table referenced by a foreign-key column.
+     *
+     * @param header column name
+     * @return the referenced table, or null if the column is not a foreign key
+     */
+    public static Table getReferencedTable(String header) {
+        return switch (header) {
+            case "patient_id" ->
+                PATIENT;
+            case "encounter_id" ->
+                ENCOUNTER;
+            case "location_id" ->
+                LOCATION;
+            case "observation_code_id" ->
+                OBSERVATION_CODE;
+            case "medication_id" ->
+                MEDICATION;
+            default ->
+                null;
+        };
+    }
+
+    /**
+     * Get the table with the given name. The tables of the normalized layout
+     * are not returned for the names they share with the default layout.
+     *
+     * @param name table name, e.g. patients
+     * @return the table
+     * @throws IllegalArgumentException if there is no such table
+     */
+    public static Table fromName(String name) {
+        for (Table table : values()) {
+            if (table.name.equals(name)) {
+                return table;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Unknown table %s.", name));
+    }
+
+    /**
+     * Get the tables with the given names.
+     *
+     * @param names comma-separated table names, e.g. patients,observations;
+     * a .tsv suffix is ignored
+     * @return the tables
+     * @throws IllegalArgumentException if there is no such table
+     */
+    public static Set<Table> fromNames(String names) {
+        Set<Table> tables = EnumSet.noneOf(Table.class);
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                tables.add(fromName(name.endsWith(".tsv") ? name.substring(0, name.length() - 4) : name));
+            }
+        }
+
+        return tables;
+    }
+
+    /**
+     * @return true if a foreign-key column of another table references this
+     * table
+     */
+    public boolean isReferenced() {
+        for (Table table : values()) {
+            if (table != this) {
+                for (String header : table.headers) {
+                    if (getReferencedTable(header) == this) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public boolean hasPrimaryKey() {
+        return "id".equals(headers[0]);
+    }
+
+    public int getColumnIndex(String header) {
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i].equals(header)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFileName() {
+        return name + ".tsv";
+    }
+
+    /**
+     * Get the prefix of the custom IDs of this table, such as pat_ for pat_1.
+     *
+     * @return the prefix, or null if the table has no custom ID
+     */
+    public String getIdPrefix() {
+        return idPrefix;
+    }
+
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    public ColumnType[] getColumnTypes() {
+        return columnTypes;
+    }
+
+}
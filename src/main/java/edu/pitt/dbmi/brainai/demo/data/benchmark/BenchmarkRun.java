@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.benchmark;
+
+import edu.pitt.dbmi.brainai.demo.data.synthea.AbstractSyntheaDataMapper;
+import edu.pitt.dbmi.brainai.demo.data.synthea.MapFromSynthea;
+import edu.pitt.dbmi.brainai.demo.data.synthea.ReducedMapFromSynthea;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs one mapper in a child JVM of {@link ScalingBenchmark} and reports, on
+ * the last line of its output, the GC time and the peak resident set size of
+ * the JVM.
+ *
+ * Oct 19, 2026 12:10:37 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class BenchmarkRun {
+
+    /**
+     * Prefix of the line of results.
+     */
+    static final String RESULT_PREFIX = "benchmark-result";
+
+    private BenchmarkRun() {
+    }
+
+    /**
+     * @param args mapper (full or reduced), data directory, output directory
+     * and the options of the mapper
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        String mapper = args[0];
+        Path dataDir = Paths.get(args[1]);
+        Path outDir = Paths.get(args[2]);
+        Arguments arguments = Arguments.parse(args, 3);
+
+        AbstractSyntheaDataMapper job = switch (mapper) {
+            case "full" ->
+                new MapFromSynthea(dataDir, outDir, arguments);
+            case "reduced" ->
+                new ReducedMapFromSynthea(dataDir, outDir, arguments);
+            default ->
+                throw new IllegalArgumentException(String.format("Unknown mapper %s.", mapper));
+        };
+        job.map();
+
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(gcBean.getCollectionTime(), 0);
+        }
+        System.out.printf("%s %d %d%n", RESULT_PREFIX, gcMillis, getPeakRssKilobytes());
+    }
+
+    /**
+     * @return peak resident set size in kilobytes, or -1 if unknown, which it
+     * is on systems other than Linux
+     */
+    private static long getPeakRssKilobytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1;
+        }
+
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException exception) {
+            // not reported
+        }
+
+        return -1;
+    }
+
+}
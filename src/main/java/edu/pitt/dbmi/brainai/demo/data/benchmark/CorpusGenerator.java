@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.benchmark;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates a corpus of a given number of patients by copying template
+ * bundles under fresh UUIDs. Synthea gives the resources of a patient random
+ * (version 4) UUIDs and the shared organizations and practitioners
+ * name-based (version 3) UUIDs, so only the random UUIDs are replaced, the
+ * same way throughout a copy, including in its file name. The copies are
+ * then distinct patients that still share the organizations.
+ *
+ * Oct 19, 2026 12:02:15 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CorpusGenerator {
+
+    private static final Pattern RANDOM_UUID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-4[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}");
+
+    private final List<Path> templateFiles;
+    private final List<String> templates = new ArrayList<>();
+    private final Random random;
+
+    /**
+     * @param templateDir directory of the template bundles
+     * @param seed seed of the generated UUIDs, so a corpus can be generated
+     * again
+     * @throws IOException
+     */
+    public CorpusGenerator(Path templateDir, long seed) throws IOException {
+        this.templateFiles = new ArrayList<>(FileUtils.listBundleFiles(templateDir));
+        this.templateFiles.sort(null);
+        this.random = new Random(seed);
+        if (templateFiles.isEmpty()) {
+            throw new IllegalArgumentException(String.format("No bundle files found in %s.", templateDir));
+        }
+
+        for (Path file : templateFiles) {
+            templates.add(Files.readString(file, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Write copies of the template bundles, in turn, into the directory.
+     *
+     * @param outDir directory of the corpus
+     * @param numOfPatients number of bundles written
+     * @return number of bytes written
+     * @throws IOException
+     */
+    public long generate(Path outDir, int numOfPatients) throws IOException {
+        Files.createDirectories(outDir);
+
+        long numOfBytes = 0;
+        Map<String, String> uuids = new HashMap<>();
+        for (int i = 0; i < numOfPatients; i++) {
+            int template = i % templates.size();
+            uuids.clear();
+            String fileName = replaceUuids(templateFiles.get(template).getFileName().toString(), uuids);
+            byte[] bundle = replaceUuids(templates.get(template), uuids).getBytes(StandardCharsets.UTF_8);
+
+            // spread the files over subdirectories, as a file system slows down with large directories
+            Path dir = outDir.resolve(String.format("%04d", i / 1000));
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(fileName), bundle);
+            numOfBytes += bundle.length;
+        }
+
+        return numOfBytes;
+    }
+
+    private String replaceUuids(String text, Map<String, String> uuids) {
+        Matcher matcher = RANDOM_UUID.matcher(text);
+        StringBuilder replaced = new StringBuilder(text.length());
+        while (matcher.find()) {
+            String uuid = uuids.computeIfAbsent(matcher.group(), key -> newUuid());
+            matcher.appendReplacement(replaced, uuid);
+        }
+        matcher.appendTail(replaced);
+
+        return replaced.toString();
+    }
+
+    private String newUuid() {
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xC000000000000000L)) | 0x8000000000000000L;
+
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+}
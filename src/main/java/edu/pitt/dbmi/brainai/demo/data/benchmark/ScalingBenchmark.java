@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.benchmark;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Macro benchmark of the mappers on generated corpora. For each corpus size,
+ * replicates the template bundles into a corpus of that many patients, then
+ * runs each mapper end to end in a child JVM for each thread count and heap
+ * size, and appends a line per run to a CSV file:
+ * <pre>
+ * mapper,patients,threads,heap,wall_seconds,patients_per_second,input_mb_per_second,gc_seconds,peak_rss_mb,exit_code
+ * </pre>
+ *
+ * Oct 19, 2026 12:18:52 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ScalingBenchmark {
+
+    private static final String CSV_HEADER = "mapper,patients,threads,heap,wall_seconds,patients_per_second,input_mb_per_second,gc_seconds,peak_rss_mb,exit_code";
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final Path workDir;
+    private final Path csvFile;
+    private final Path templateDir;
+    private final long seed;
+    private final List<Integer> sizes;
+    private final List<String> mappers;
+    private final List<Integer> threadCounts;
+    private final List<String> heaps;
+    private final boolean keepOutput;
+
+    /**
+     * Options:
+     * <pre>
+     * --sizes=N,...            numbers of patients of the corpora (default 10000,100000,1000000)
+     * --mappers=NAMES          full and/or reduced (default full,reduced)
+     * --thread-counts=N,...    values of --threads of the mappers (default 1,4,8)
+     * --heaps=SIZES            maximum heap sizes of the child JVMs (default 2g,8g)
+     * --template-dir=DIR       bundles replicated into the corpora
+     *                          (default src/test/resources/data/synthea)
+     * --seed=N                 seed of the generated UUIDs (default 1)
+     * --keep-output=BOOLEAN    keep the output of each run (default false)
+     * </pre>
+     *
+     * @param workDir directory of the corpora and the output
+     * @param csvFile file the results are appended to
+     * @param arguments options
+     */
+    public ScalingBenchmark(Path workDir, Path csvFile, Arguments arguments) {
+        this.workDir = workDir;
+        this.csvFile = csvFile;
+        this.templateDir = Paths.get(arguments.getString("template-dir", "src/test/resources/data/synthea"));
+        this.seed = arguments.getLong("seed", 1);
+        this.sizes = parseInts(arguments.getString("sizes", "10000,100000,1000000"));
+        this.mappers = parseStrings(arguments.getString("mappers", "full,reduced"));
+        this.threadCounts = parseInts(arguments.getString("thread-counts", "1,4,8"));
+        this.heaps = parseStrings(arguments.getString("heaps", "2g,8g"));
+        this.keepOutput = arguments.getBoolean("keep-output", false);
+    }
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Path workDir = Paths.get(args[0]);
+        Path csvFile = Paths.get(args[1]);
+        Arguments arguments = Arguments.parse(args, 2);
+        System.out.println("================================================================================");
+        System.out.println("Scaling Benchmark");
+        System.out.println("--------------------------------------------------------------------------------");
+        System.out.printf("Work Directory: %s%n", workDir.toString());
+        System.out.printf("CSV File: %s%n", csvFile.toString());
+        System.out.println();
+        try {
+            (new ScalingBenchmark(workDir, csvFile, arguments)).run();
+        } catch (IOException | InterruptedException exception) {
+            exception.printStackTrace(System.err);
+        }
+        System.out.println("================================================================================");
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void run() throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        boolean newCsvFile = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            if (newCsvFile) {
+                csv.println(CSV_HEADER);
+            }
+
+            CorpusGenerator generator = new CorpusGenerator(templateDir, seed);
+            for (int size : sizes) {
+                Path corpusDir = workDir.resolve("corpus-" + size);
+                delete(corpusDir);
+                System.out.printf("Generating %d patients%n", size);
+                long numOfBytes = generator.generate(corpusDir, size);
+
+                for (String mapper : mappers) {
+                    for (String heap : heaps) {
+                        for (int threads : threadCounts) {
+                            Path outDir = workDir.resolve(String.format("out-%s-%d-%d-%s", mapper, size, threads, heap));
+                            delete(outDir);
+                            Files.createDirectories(outDir);
+
+                            csv.println(runMapper(mapper, corpusDir, outDir, size, numOfBytes, threads, heap));
+                            csv.flush();
+
+                            if (!keepOutput) {
+                                delete(outDir);
+                            }
+                        }
+                    }
+                }
+
+                delete(corpusDir);
+            }
+        }
+    }
+
+    private String runMapper(String mapper, Path corpusDir, Path outDir, int size, long numOfBytes, int threads, String heap) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + heap);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRun.class.getName());
+        command.add(mapper);
+        command.add(corpusDir.toString());
+        command.add(outDir.toString());
+        command.add("--threads=" + threads);
+        System.out.printf("Running %s on %d patients with %d threads and %s heap%n", mapper, size, threads, heap);
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        long startTime = System.nanoTime();
+
+        // the child's output is logged with the runs, its last result line is kept
+        String result = null;
+        Path logFile = workDir.resolve(String.format("run-%s-%d-%d-%s.log", mapper, size, threads, heap));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter log = new PrintWriter(Files.newBufferedWriter(logFile, StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                log.println(line);
+                if (line.startsWith(BenchmarkRun.RESULT_PREFIX)) {
+                    result = line;
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        double wallSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        String gcSeconds = "";
+        String peakRssMegabytes = "";
+        if (result != null) {
+            String[] fields = result.split(" ");
+            gcSeconds = String.format("%.3f", Long.parseLong(fields[1]) / 1000.0);
+            long peakRssKilobytes = Long.parseLong(fields[2]);
+            peakRssMegabytes = (peakRssKilobytes < 0) ? "" : String.format("%.1f", peakRssKilobytes / 1024.0);
+        }
+
+        return String.format("%s,%d,%d,%s,%.3f,%.1f,%.2f,%s,%s,%d",
+                mapper, size, threads, heap, wallSeconds, size / wallSeconds, numOfBytes / MEGABYTE / wallSeconds,
+                gcSeconds, peakRssMegabytes, exitCode);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static List<Integer> parseInts(String values) {
+        List<Integer> ints = new ArrayList<>();
+        for (String value : parseStrings(values)) {
+            try {
+                ints.add(Integer.parseInt(value));
+            } catch (NumberFormatException exception) {
+                throw new IllegalArgumentException(String.format("Invalid number %s.", value));
+            }
+        }
+
+        return ints;
+    }
+
+    private static List<String> parseStrings(String values) {
+        List<String> strings = new ArrayList<>();
+        for (String value : values.split(",")) {
+            value = value.trim();
+            if (!value.isEmpty()) {
+                strings.add(value);
+            }
+        }
+
+        return strings;
+    }
+
+}
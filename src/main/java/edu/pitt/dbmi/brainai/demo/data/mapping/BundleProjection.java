@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The rows extracted from a bundle, with Synthea IDs in the ID columns.
+ *
+ * Oct 18, 2026 1:58:21 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class BundleProjection {
+
+    private final Map<Table, List<Object[]>> tableRows = new EnumMap<>(Table.class);
+
+    public BundleProjection() {
+    }
+
+    public void add(Table table, Object[] row) {
+        tableRows.computeIfAbsent(table, k -> new ArrayList<>()).add(row);
+    }
+
+    /**
+     * Append the rows of another projection, table by table.
+     *
+     * @param projection rows of the entries after those of this projection
+     */
+    public void addAll(BundleProjection projection) {
+        projection.tableRows.forEach((table, rows) -> tableRows.computeIfAbsent(table, k -> new ArrayList<>()).addAll(rows));
+    }
+
+    /**
+     * @return the tables that have rows
+     */
+    public Set<Table> getTables() {
+        return tableRows.keySet();
+    }
+
+    public List<Object[]> getRows(Table table) {
+        return tableRows.getOrDefault(table, Collections.emptyList());
+    }
+
+}
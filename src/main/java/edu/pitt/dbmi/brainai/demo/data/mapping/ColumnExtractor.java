@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+/**
+ * Extracts the value of a column from a FHIR resource.
+ *
+ * Oct 18, 2026 1:05:42 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ * @param <R> FHIR resource type
+ */
+@FunctionalInterface
+public interface ColumnExtractor<R> {
+
+    /**
+     * @param resource the resource being mapped
+     * @param index position of the resource among the resources of the same
+     * table in its bundle
+     * @return the column value
+     */
+    Object extract(R resource, int index);
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps only the encounters, observations and medication administrations
+ * after a watermark, plus the patients, encounters and locations they
+ * reference.
+ *
+ * The watermark is read from a watermark file, or given with --since, and the
+ * latest time seen is saved to the watermark file at the end of the run. The
+ * custom IDs are saved next to the watermark file, in a file with the suffix
+ * .ids, so that the IDs of later exports are consistent with earlier ones.
+ *
+ * <pre>
+ * --watermark-file=FILE    read and record the watermark
+ * --since=TIME             export after this time instead of the recorded watermark,
+ *                          e.g. 2024-01-31T00:00:00Z or 2024-01-31
+ * </pre>
+ *
+ * Oct 18, 2026 3:22:44 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class DeltaFilter {
+
+    private final Path watermarkFile;
+    private final long watermark;
+
+    private long latestTime;
+
+    /**
+     * @param watermarkFile file the new watermark is saved to, or null
+     * @param watermark rows at or before this time are not exported
+     */
+    public DeltaFilter(Path watermarkFile, Date watermark) {
+        this.watermarkFile = watermarkFile;
+        this.watermark = (watermark == null) ? Long.MIN_VALUE : watermark.getTime();
+        this.latestTime = this.watermark;
+    }
+
+    /**
+     * Create the delta filter requested on the command line.
+     *
+     * @param arguments command-line arguments
+     * @return the filter, or null if no delta export is requested
+     * @throws IOException if the watermark file cannot be read
+     */
+    public static DeltaFilter create(Arguments arguments) throws IOException {
+        String since = arguments.getString("since", null);
+        String file = arguments.getString("watermark-file", null);
+        if (since == null && file == null) {
+            return null;
+        }
+
+        Path watermarkFile = (file == null) ? null : Paths.get(file);
+        if (since == null && Files.exists(watermarkFile)) {
+            since = Files.readString(watermarkFile).trim();
+        }
+
+        return new DeltaFilter(watermarkFile, (since == null) ? null : parseTime(since));
+    }
+
+    /**
+     * Load the custom IDs saved by an earlier export.
+     *
+     * @param ids custom IDs
+     * @throws IOException
+     */
+    public void loadIds(IdMaps ids) throws IOException {
+        if (watermarkFile != null && Files.exists(getIdFile())) {
+            ids.load(getIdFile());
+        }
+    }
+
+    /**
+     * Save the latest time seen as the new watermark, and the custom IDs.
+     *
+     * @param ids custom IDs
+     * @throws IOException
+     */
+    public void save(IdMaps ids) throws IOException {
+        if (watermarkFile != null) {
+            ids.save(getIdFile());
+            if (latestTime != Long.MIN_VALUE) {
+                Files.writeString(watermarkFile, Instant.ofEpochMilli(latestTime).toString());
+            }
+        }
+    }
+
+    /**
+     * Filter the rows of a projection.
+     *
+     * @param projection rows with Synthea IDs
+     * @return the rows to export
+     */
+    public BundleProjection filter(BundleProjection projection) {
+        BundleProjection delta = new BundleProjection();
+        Set<Object> encounterIds = new HashSet<>();
+        Set<Object> patientIds = new HashSet<>();
+        Set<Object> locationIds = new HashSet<>();
+        boolean hasLocationReferences = false;
+
+        // encounters referenced by new observations and medication
+        // administrations are kept even if they ended before the watermark,
+        // so that the rows referencing them have an encounter ID
+        Set<Object> referencedEncounterIds = new HashSet<>();
+        for (Table table : List.of(Table.OBSERVATION, Table.MEDICATION_ADMINISTRATION)) {
+            for (Object[] row : projection.getRows(table)) {
+                if (isAfterWatermark(getValue(row, table, "effective"))) {
+                    delta.add(table, row);
+                    patientIds.add(getValue(row, table, "patient_id"));
+                    addReference(referencedEncounterIds, row, table, "encounter_id");
+                }
+            }
+        }
+        for (Object[] row : projection.getRows(Table.ENCOUNTER)) {
+            // an encounter is active until it ends
+            Object time = (getValue(row, Table.ENCOUNTER, "end") == null)
+                    ? getValue(row, Table.ENCOUNTER, "start")
+                    : getValue(row, Table.ENCOUNTER, "end");
+            if (isAfterWatermark(time) || referencedEncounterIds.contains(row[0])) {
+                delta.add(Table.ENCOUNTER, row);
+                encounterIds.add(row[0]);
+                patientIds.add(getValue(row, Table.ENCOUNTER, "patient_id"));
+                hasLocationReferences |= addReference(locationIds, row, Table.ENCOUNTER, "location_id");
+            }
+        }
+        for (Object[] row : projection.getRows(Table.ENCOUNTER_LOCATION)) {
+            if (encounterIds.contains(row[0])) {
+                delta.add(Table.ENCOUNTER_LOCATION, row);
+                hasLocationReferences |= addReference(locationIds, row, Table.ENCOUNTER_LOCATION, "location_id");
+            }
+        }
+        for (Object[] row : projection.getRows(Table.PATIENT)) {
+            if (patientIds.contains(row[0])) {
+                delta.add(Table.PATIENT, row);
+            }
+        }
+
+        // without location references, keep the locations of bundles with new activity
+        boolean hasActivity = !patientIds.isEmpty();
+        for (Object[] row : projection.getRows(Table.LOCATION)) {
+            if (hasLocationReferences ? locationIds.contains(row[0]) : hasActivity) {
+                delta.add(Table.LOCATION, row);
+            }
+        }
+
+        return delta;
+    }
+
+    private boolean isAfterWatermark(Object time) {
+        if (!(time instanceof Date date)) {
+            return false;
+        }
+
+        long millis = date.getTime();
+        if (millis > latestTime) {
+            latestTime = millis;
+        }
+
+        return millis > watermark;
+    }
+
+    private static boolean addReference(Set<Object> ids, Object[] row, Table table, String header) {
+        Object id = getValue(row, table, header);
+        if (id == null) {
+            return false;
+        }
+        ids.add(id);
+
+        return true;
+    }
+
+    private static Object getValue(Object[] row, Table table, String header) {
+        int index = table.getColumnIndex(header);
+
+        return (index >= 0 && index < row.length) ? row[index] : null;
+    }
+
+    private Path getIdFile() {
+        return Paths.get(watermarkFile.toString() + ".ids");
+    }
+
+    private static Date parseTime(String time) {
+        try {
+            return Date.from(Instant.parse(time));
+        } catch (DateTimeParseException exception) {
+            try {
+                return Date.from(OffsetDateTime.parse(time).toInstant());
+            } catch (DateTimeParseException offsetException) {
+                try {
+                    return Date.from(LocalDate.parse(time).atStartOfDay(ZoneId.systemDefault()).toInstant());
+                } catch (DateTimeParseException dateException) {
+                    throw new IllegalArgumentException(String.format("Invalid watermark %s.", time), dateException);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+/**
+ * Extracts the value of a column of one of the rows of a FHIR resource. A
+ * mapping with elements, such as the components of an observation, maps each
+ * resource to a row per element.
+ *
+ * Oct 19, 2026 1:31:17 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ * @param <R> FHIR resource type
+ */
+@FunctionalInterface
+public interface ElementExtractor<R> {
+
+    /**
+     * @param resource the resource being mapped
+     * @param index position of the resource among the resources of the same
+     * table in its bundle
+     * @param element position of the row among the rows of the resource
+     * @param value the element of the row, or null if the mapping has no
+     * elements
+     * @return the column value
+     */
+    Object extract(R resource, int index, int element, Object value);
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Custom IDs are created by numbering the Synthea IDs of each table in the
+ * order they are first seen, e.g. pat_1, pat_2.
+ *
+ * Oct 18, 2026 1:14:55 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class IdMaps implements IdResolver {
+
+    private final Map<Table, Map<String, String>> syntheaToCustomIds = new EnumMap<>(Table.class);
+    private final Map<Table, Integer> idCounters = new EnumMap<>(Table.class);
+
+    /**
+     * Synthea IDs of the rows written by the job. They are not saved, since
+     * each export writes the rows it references.
+     */
+    private final Map<Table, Set<String>> writtenIds = new EnumMap<>(Table.class);
+
+    public IdMaps() {
+    }
+
+    @Override
+    public String assign(Table table, String syntheaId) {
+        Map<String, String> ids = syntheaToCustomIds.computeIfAbsent(table, k -> new HashMap<>());
+        String customId = ids.get(syntheaId);
+        if (customId == null) {
+            int counter = idCounters.merge(table, 1, Integer::sum);
+            customId = table.getIdPrefix() + counter;
+            ids.put(syntheaId, customId);
+        }
+
+        return customId;
+    }
+
+    @Override
+    public String lookup(Table table, String syntheaId) {
+        Map<String, String> ids = syntheaToCustomIds.get(table);
+
+        return (ids == null) ? null : ids.get(syntheaId);
+    }
+
+    @Override
+    public boolean markWritten(Table table, String syntheaId) {
+        return writtenIds.computeIfAbsent(table, k -> new HashSet<>()).add(syntheaId);
+    }
+
+    /**
+     * Record the rows of all the custom IDs of a table as written, for output
+     * that is appended to and already has a row for each ID of the table.
+     *
+     * @param table the table
+     */
+    public void markWritten(Table table) {
+        Map<String, String> ids = syntheaToCustomIds.get(table);
+        if (ids != null) {
+            writtenIds.computeIfAbsent(table, k -> new HashSet<>()).addAll(ids.keySet());
+        }
+    }
+
+    /**
+     * Load the ID maps saved by {@link #save(Path)}, adding them to the
+     * current ones.
+     *
+     * @param file saved ID maps
+     * @throws IOException
+     */
+    public void load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 3) {
+                    throw new IOException(String.format("Invalid ID map line in %s: %s", file, line));
+                }
+
+                Table table = Table.fromName(fields[0]);
+                if (!fields[1].isEmpty()) {
+                    syntheaToCustomIds.computeIfAbsent(table, k -> new HashMap<>()).put(fields[1], fields[2]);
+                }
+                try {
+                    int counter = Integer.parseInt(fields[2].substring(table.getIdPrefix().length()));
+                    idCounters.merge(table, counter, Math::max);
+                } catch (NumberFormatException | IndexOutOfBoundsException exception) {
+                    throw new IOException(String.format("Invalid custom ID in %s: %s", file, fields[2]), exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the ID maps as lines of table name, Synthea ID and custom ID. Only
+     * the IDs of tables referenced by other tables are looked up later, so
+     * the other tables, such as the observations, are saved as a single line
+     * with an empty Synthea ID and the last custom ID, which is enough to
+     * continue the numbering. The maps are written to a temporary file first,
+     * so the saved maps are replaced as a whole or not at all.
+     *
+     * @param file where the ID maps are saved
+     * @throws IOException
+     */
+    public void save(Path file) throws IOException {
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(tempFile))) {
+                syntheaToCustomIds.forEach((table, ids) -> {
+                    if (table.isReferenced()) {
+                        ids.forEach((syntheaId, customId) -> {
+                            writer.printf("%s\t%s\t%s%n", table.getName(), syntheaId, customId);
+                        });
+                    }
+                });
+                idCounters.forEach((table, counter) -> {
+                    if (!table.isReferenced()) {
+                        writer.printf("%s\t\t%s%d%n", table.getName(), table.getIdPrefix(), counter);
+                    }
+                });
+                if (writer.checkError()) {
+                    throw new IOException(String.format("Unable to write %s.", file));
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+
+/**
+ * Maps Synthea IDs to custom IDs.
+ *
+ * Oct 18, 2026 1:09:18 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public interface IdResolver {
+
+    /**
+     * Get the custom ID of a Synthea ID, creating a new one if there is none.
+     *
+     * @param table table whose rows the IDs identify
+     * @param syntheaId Synthea ID
+     * @return the custom ID
+     */
+    String assign(Table table, String syntheaId);
+
+    /**
+     * Get the custom ID of a Synthea ID.
+     *
+     * @param table table whose rows the IDs identify
+     * @param syntheaId Synthea ID
+     * @return the custom ID, or null if none has been assigned
+     */
+    String lookup(Table table, String syntheaId);
+
+    /**
+     * Record that the row of a Synthea ID has been written.
+     *
+     * @param table table of the row
+     * @param syntheaId Synthea ID of the row
+     * @return true if the row had not been written before
+     */
+    boolean markWritten(Table table, String syntheaId);
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriter;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Maps bundles to output tables using a set of table mappings. The bundle
+ * entries are visited once, and each entry is dispatched to the row mappers
+ * of its resource type. The entries of a bundle larger than the split
+ * threshold are extracted in slices by fork-join subtasks, and the rows of
+ * the slices are joined in entry order, so the rows are the same as if the
+ * bundle was extracted on one thread.
+ *
+ * Oct 18, 2026 2:06:49 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class MappingEngine {
+
+    /**
+     * Bundles are not split unless asked for, since the slices run on the
+     * common fork-join pool, outside the thread count of the mapper.
+     */
+    public static final int DEFAULT_SPLIT_THRESHOLD = 0;
+
+    private final List<RowMapper<?>> rowMappers = new LinkedList<>();
+    private final Map<String, RowMapper<?>[]> fhirTypeRowMappers = new HashMap<>();
+    private final Set<Table> tables = EnumSet.noneOf(Table.class);
+    private final List<String> layout = new LinkedList<>();
+    private final int splitThreshold;
+
+    /**
+     * Map all the tables of the mappings.
+     *
+     * @param tableMappings table mappings, in the order the rows are written
+     */
+    public MappingEngine(List<TableMapping<?>> tableMappings) {
+        this(tableMappings, tableMappings.stream().map(TableMapping::getTable).collect(Collectors.toSet()), Set.of());
+    }
+
+    /**
+     * Map only the given tables. The tables whose custom IDs are referenced
+     * by the given tables are projected key-only, so the IDs are the same as
+     * if all the tables were mapped; the other tables are not projected at
+     * all, and resources only they use are skipped.
+     *
+     * @param tableMappings table mappings, in the order the rows are written
+     * @param tables tables to write
+     * @param keyTables tables to project key-only even if their IDs are not
+     * referenced, for callers that select rows on them
+     */
+    public MappingEngine(List<TableMapping<?>> tableMappings, Set<Table> tables, Set<Table> keyTables) {
+        this(tableMappings, tables, keyTables, 0);
+    }
+
+    /**
+     * Map only the given tables, extracting large bundles in parallel.
+     *
+     * @param tableMappings table mappings, in the order the rows are written
+     * @param tables tables to write
+     * @param keyTables tables to project key-only even if their IDs are not
+     * referenced, for callers that select rows on them
+     * @param splitThreshold number of entries above which a bundle is
+     * extracted in slices of that many entries in parallel, or 0 to extract
+     * every bundle on the calling thread
+     */
+    public MappingEngine(List<TableMapping<?>> tableMappings, Set<Table> tables, Set<Table> keyTables, int splitThreshold) {
+        if (splitThreshold < 0) {
+            throw new IllegalArgumentException("Split threshold must not be negative.");
+        }
+        this.splitThreshold = splitThreshold;
+
+        // custom IDs referenced by the written tables
+        Set<Table> idTables = EnumSet.noneOf(Table.class);
+        for (TableMapping<?> tableMapping : tableMappings) {
+            if (tables.contains(tableMapping.getTable())) {
+                tableMapping.getColumns().stream()
+                        .filter(column -> column.idTable() != null)
+                        .forEach(column -> idTables.add(column.idTable()));
+            }
+        }
+
+        Map<String, List<RowMapper<?>>> mappers = new HashMap<>();
+        for (TableMapping<?> tableMapping : tableMappings) {
+            Table table = tableMapping.getTable();
+            TableMapping<?> mapping;
+            if (tables.contains(table)) {
+                mapping = tableMapping;
+                this.tables.add(table);
+                layout.add(table.getName());
+            } else if (keyTables.contains(table) || idTables.stream().anyMatch(tableMapping::assignsIds)) {
+                mapping = tableMapping.keys();
+                layout.add(table.getName() + ":keys");
+            } else {
+                continue;
+            }
+
+            RowMapper<?> rowMapper = mapping.compile();
+            rowMappers.add(rowMapper);
+            mappers.computeIfAbsent(mapping.getResourceType().getSimpleName(), k -> new LinkedList<>()).add(rowMapper);
+        }
+        mappers.forEach((fhirType, list) -> fhirTypeRowMappers.put(fhirType, list.toArray(RowMapper<?>[]::new)));
+    }
+
+    /**
+     * Extract the rows of a bundle.
+     *
+     * @param bundle the bundle
+     * @return rows with Synthea IDs
+     */
+    public BundleProjection project(Bundle bundle) {
+        List<Bundle.BundleEntryComponent> entries = bundle.getEntry();
+        if (splitThreshold == 0 || entries.size() <= splitThreshold) {
+            BundleProjection projection = new BundleProjection();
+            project(entries, 0, entries.size(), new EnumMap<>(Table.class), projection);
+
+            return projection;
+        }
+
+        // number of resources of each table before each slice, so the
+        // resources are indexed in each slice as in the whole bundle
+        int numOfSlices = (entries.size() + splitThreshold - 1) / splitThreshold;
+        List<Map<Table, Integer>> sliceCounts = new ArrayList<>(numOfSlices);
+        Map<Table, Integer> counts = new EnumMap<>(Table.class);
+        for (int i = 0; i < entries.size(); i++) {
+            if (i % splitThreshold == 0) {
+                sliceCounts.add(new EnumMap<>(counts));
+            }
+            RowMapper<?>[] mappers = fhirTypeRowMappers.get(entries.get(i).getResource().fhirType());
+            if (mappers != null) {
+                for (RowMapper<?> rowMapper : mappers) {
+                    counts.merge(rowMapper.getTable(), 1, Integer::sum);
+                }
+            }
+        }
+
+        return ForkJoinPool.commonPool().invoke(new SliceTask(entries, sliceCounts, 0, numOfSlices));
+    }
+
+    /**
+     * Extract the rows of a range of entries.
+     *
+     * @param counts number of resources of each table before the range,
+     * updated to include the range
+     */
+    private void project(List<Bundle.BundleEntryComponent> entries, int from, int to, Map<Table, Integer> counts, BundleProjection projection) {
+        for (int i = from; i < to; i++) {
+            Resource resource = entries.get(i).getResource();
+            RowMapper<?>[] mappers = fhirTypeRowMappers.get(resource.fhirType());
+            if (mappers != null) {
+                for (RowMapper<?> rowMapper : mappers) {
+                    int index = counts.merge(rowMapper.getTable(), 1, Integer::sum) - 1;
+                    rowMapper.extractResource(resource, index, projection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the rows of a bundle, table by table in mapping order. A row of a
+     * shared mapping is skipped if a row with its ID has already been
+     * written.
+     *
+     * @param projection rows with Synthea IDs
+     * @param ids custom IDs
+     * @param writers table writers
+     */
+    public void write(BundleProjection projection, IdResolver ids, TableWriters writers) {
+        for (RowMapper<?> rowMapper : rowMappers) {
+            Table table = rowMapper.getTable();
+            if (tables.contains(table)) {
+                TableWriter writer = writers.get(table);
+                boolean shared = rowMapper.isShared();
+                for (Object[] row : projection.getRows(table)) {
+                    if (!shared || ids.markWritten(table, (String) row[0])) {
+                        rowMapper.write(row, ids, writer);
+                    }
+                }
+            } else {
+                for (Object[] row : projection.getRows(table)) {
+                    rowMapper.assignIds(row, ids);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the tables written, in mapping order
+     */
+    public List<Table> getTables() {
+        return rowMappers.stream().map(RowMapper::getTable).filter(tables::contains).toList();
+    }
+
+    /**
+     * @return the written tables of shared mappings
+     */
+    public Set<Table> getSharedTables() {
+        return rowMappers.stream()
+                .filter(rowMapper -> rowMapper.isShared() && tables.contains(rowMapper.getTable()))
+                .map(RowMapper::getTable)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Table.class)));
+    }
+
+    /**
+     * @return the FHIR types of the resources that are mapped
+     */
+    public Set<String> getResourceTypes() {
+        return fhirTypeRowMappers.keySet();
+    }
+
+    /**
+     * Describes what is projected, e.g. patients and observations:keys, so
+     * projections of different layouts can be told apart.
+     *
+     * @return the projected tables, in mapping order
+     */
+    public List<String> getLayout() {
+        return layout;
+    }
+
+    /**
+     * Extracts a range of slices, halving it until one slice is left, and
+     * joins the rows of the halves in order.
+     */
+    private class SliceTask extends RecursiveTask<BundleProjection> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Bundle.BundleEntryComponent> entries;
+        private final List<Map<Table, Integer>> sliceCounts;
+        private final int fromSlice;
+        private final int toSlice;
+
+        public SliceTask(List<Bundle.BundleEntryComponent> entries, List<Map<Table, Integer>> sliceCounts, int fromSlice, int toSlice) {
+            this.entries = entries;
+            this.sliceCounts = sliceCounts;
+            this.fromSlice = fromSlice;
+            this.toSlice = toSlice;
+        }
+
+        @Override
+        protected BundleProjection compute() {
+            if (toSlice - fromSlice == 1) {
+                BundleProjection projection = new BundleProjection();
+                int from = fromSlice * splitThreshold;
+                project(entries, from, Math.min(from + splitThreshold, entries.size()), new EnumMap<>(sliceCounts.get(fromSlice)), projection);
+
+                return projection;
+            }
+
+            int middle = (fromSlice + toSlice) >>> 1;
+            SliceTask right = new SliceTask(entries, sliceCounts, middle, toSlice);
+            right.fork();
+            BundleProjection projection = new SliceTask(entries, sliceCounts, fromSlice, middle).compute();
+            projection.addAll(right.join());
+
+            return projection;
+        }
+
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import edu.pitt.dbmi.brainai.demo.data.utils.RowCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the projections of bundle files in a compact binary form, keyed by
+ * the SHA-256 hash of the file content, so a bundle that was mapped before is
+ * not parsed again. The entries are kept under a directory named after the
+ * projection schema, so changing a file or the schema invalidates its entries.
+ *
+ * <pre>
+ * --parse-cache=DIR         cache parsed bundles in the directory
+ * </pre>
+ *
+ * Oct 18, 2026 8:12:37 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ProjectionCache {
+
+    private static final int MAGIC = 0x42505243;
+
+    private final Path schemaDir;
+
+    private final LongAdder numOfHits = new LongAdder();
+    private final LongAdder numOfMisses = new LongAdder();
+
+    @FunctionalInterface
+    public interface Loader {
+
+        BundleProjection load(Path file) throws IOException;
+
+    }
+
+    /**
+     * @param cacheDir cache directory
+     * @param schemaId identifies the projection schema of the entries
+     */
+    public ProjectionCache(Path cacheDir, String schemaId) {
+        this.schemaDir = cacheDir.resolve(schemaId);
+    }
+
+    /**
+     * Create the cache given by the --parse-cache option.
+     *
+     * @param arguments command-line options
+     * @param schemaName name of the table mappings
+     * @param schemaVersion version of the table mappings, changed whenever
+     * what they extract changes
+     * @param mappingEngine the engine projecting the bundles
+     * @return the cache, or null if the option is not given
+     */
+    public static ProjectionCache create(Arguments arguments, String schemaName, int schemaVersion, MappingEngine mappingEngine) {
+        if (!arguments.has("parse-cache")) {
+            return null;
+        }
+
+        return new ProjectionCache(Paths.get(arguments.getString("parse-cache", null)), getSchemaId(schemaName, schemaVersion, mappingEngine.getLayout()));
+    }
+
+    /**
+     * The schema ID combines the name and version of the mappings with a
+     * hash of the projected tables and their layouts, so a change of columns
+     * or of the table selection invalidates the cache even if the version is
+     * not changed.
+     *
+     * @param schemaName name of the table mappings
+     * @param schemaVersion version of the table mappings
+     * @param layout the projected tables, as given by
+     * {@link MappingEngine#getLayout()}
+     * @return the schema ID
+     */
+    public static String getSchemaId(String schemaName, int schemaVersion, List<String> layout) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        for (String projectedTable : layout) {
+            Table table = Table.fromName(projectedTable.split(":")[0]);
+            digest.update(String.format("%s%s%s%n", projectedTable, List.of(table.getHeaders()), List.of(table.getColumnTypes()))
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+
+        return String.format("%s-v%d-%s", schemaName, schemaVersion, HexFormat.of().formatHex(digest.digest(), 0, 8));
+    }
+
+    /**
+     * Get the projection of the file from the cache, or load it and add it to
+     * the cache.
+     *
+     * @param file bundle file
+     * @param loader parses and projects the file on a cache miss
+     * @return the projection
+     * @throws IOException
+     */
+    public BundleProjection get(Path file, Loader loader) throws IOException {
+        String hash = FileUtils.hash(file);
+        Path entryFile = schemaDir.resolve(hash.substring(0, 2)).resolve(hash + ".bin");
+
+        BundleProjection projection = read(entryFile);
+        if (projection != null) {
+            numOfHits.increment();
+
+            return projection;
+        }
+
+        numOfMisses.increment();
+        projection = loader.load(file);
+        write(entryFile, projection);
+
+        return projection;
+    }
+
+    public long getNumOfHits() {
+        return numOfHits.sum();
+    }
+
+    public long getNumOfMisses() {
+        return numOfMisses.sum();
+    }
+
+    /**
+     * @return the cached projection, or null if there is none or it cannot be
+     * read
+     */
+    private static BundleProjection read(Path entryFile) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryFile)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+
+            BundleProjection projection = new BundleProjection();
+            int numOfTables = in.readUnsignedByte();
+            for (int i = 0; i < numOfTables; i++) {
+                Table table = Table.fromName(RowCodec.readString(in));
+                int numOfRows = in.readInt();
+                for (int j = 0; j < numOfRows; j++) {
+                    projection.add(table, RowCodec.readRow(in));
+                }
+            }
+
+            return projection;
+        } catch (NoSuchFileException exception) {
+            return null;
+        } catch (IOException | RuntimeException exception) {
+            System.err.printf("Ignoring unreadable cache entry %s: %s%n", entryFile, exception.getMessage());
+
+            return null;
+        }
+    }
+
+    /**
+     * Write the entry to a temporary file first, so a reader never sees a
+     * partial entry.
+     */
+    private static void write(Path entryFile, BundleProjection projection) throws IOException {
+        Files.createDirectories(entryFile.getParent());
+        Path tempFile = Files.createTempFile(entryFile.getParent(), entryFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(projection.getTables().size());
+                for (Table table : projection.getTables()) {
+                    List<Object[]> rows = projection.getRows(table);
+                    RowCodec.writeString(out, table.getName());
+                    out.writeInt(rows.size());
+                    for (Object[] row : rows) {
+                        RowCodec.writeRow(out, row);
+                    }
+                }
+            }
+            Files.move(tempFile, entryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+}
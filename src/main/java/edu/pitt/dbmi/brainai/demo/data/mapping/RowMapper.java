@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * A compiled table mapping. Mapping a resource is done in two steps: the
+ * column values are extracted into a row with Synthea IDs, and the row is
+ * written with the Synthea IDs replaced by custom IDs. The extracted rows do
+ * not reference the resource, so they can be kept after the bundle is
+ * released.
+ *
+ * A row mapper is not thread-safe for writing.
+ *
+ * Oct 18, 2026 1:40:33 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ * @param <R> FHIR resource type
+ */
+public final class RowMapper<R extends Resource> {
+
+    private final Table table;
+    private final Class<R> resourceType;
+    private final ElementExtractor<? super R>[] extractors;
+    private final Function<? super R, ? extends List<?>> elements;
+    private final Table[] idTables;
+    private final boolean[] assignIds;
+    private final boolean shared;
+
+    private final Object[] row;
+    private final List<Object> rowView;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    RowMapper(Table table, Class<R> resourceType, List<TableMapping.Column<R>> columns, Function<? super R, ? extends List<?>> elements, boolean shared) {
+        this.table = table;
+        this.resourceType = resourceType;
+        this.elements = elements;
+        this.shared = shared;
+
+        int size = columns.size();
+        this.extractors = new ElementExtractor[size];
+        this.idTables = new Table[size];
+        this.assignIds = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            TableMapping.Column<R> column = columns.get(i);
+            extractors[i] = column.extractor();
+            idTables[i] = column.idTable();
+            assignIds[i] = column.assignId();
+        }
+
+        this.row = new Object[size];
+        this.rowView = Arrays.asList(row);
+    }
+
+    /**
+     * Extract the column values of a row of a resource.
+     *
+     * @param resource the resource
+     * @param index position of the resource among the resources of the same
+     * table in its bundle
+     * @param element position of the row among the rows of the resource
+     * @param value the element of the row, or null if the mapping has no
+     * elements
+     * @return the row, with Synthea IDs in the ID columns
+     */
+    public Object[] extract(R resource, int index, int element, Object value) {
+        Object[] values = new Object[extractors.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = extractors[i].extract(resource, index, element, value);
+        }
+
+        return values;
+    }
+
+    /**
+     * Extract the rows of a resource of unchecked type.
+     *
+     * @param resource the resource
+     * @param index position of the resource among the resources of the same
+     * table in its bundle
+     * @param projection where the rows are added
+     * @throws ClassCastException if the resource is not of the mapped type
+     */
+    public void extractResource(Resource resource, int index, BundleProjection projection) {
+        R typedResource = resourceType.cast(resource);
+        if (elements == null) {
+            projection.add(table, extract(typedResource, index, 0, null));
+        } else {
+            List<?> values = elements.apply(typedResource);
+            for (int element = 0; element < values.size(); element++) {
+                projection.add(table, extract(typedResource, index, element, values.get(element)));
+            }
+        }
+    }
+
+    /**
+     * Write an extracted row, replacing the Synthea IDs with custom IDs.
+     *
+     * @param values extracted row
+     * @param ids custom IDs
+     * @param writer table writer
+     */
+    public void write(Object[] values, IdResolver ids, TableWriter writer) {
+        for (int i = 0; i < values.length; i++) {
+            Table idTable = idTables[i];
+            if (idTable == null) {
+                row[i] = values[i];
+            } else if (assignIds[i]) {
+                row[i] = ids.assign(idTable, (String) values[i]);
+            } else {
+                String customId = ids.lookup(idTable, (String) values[i]);
+                if (customId == null) {
+                    System.err.printf("No %s %s found for the %s.%n", toDisplayName(idTable), values[i], toDisplayName(table));
+                }
+                row[i] = customId;
+            }
+        }
+        writer.write(rowView);
+    }
+
+    /**
+     * Assign the custom IDs of an extracted row without writing it.
+     *
+     * @param values extracted row
+     * @param ids custom IDs
+     */
+    public void assignIds(Object[] values, IdResolver ids) {
+        for (int i = 0; i < values.length; i++) {
+            if (assignIds[i]) {
+                ids.assign(idTables[i], (String) values[i]);
+            }
+        }
+    }
+
+    private static String toDisplayName(Table table) {
+        return table.name().toLowerCase().replace('_', ' ');
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public Class<R> getResourceType() {
+        return resourceType;
+    }
+
+    /**
+     * @return true if the row of an ID is written only once
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+}
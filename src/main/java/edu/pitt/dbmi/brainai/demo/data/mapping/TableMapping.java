@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.ColumnType;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Function;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Declares how the rows of an output table are extracted from a FHIR resource
+ * type, as a list of column extractors in table column order. A resource is
+ * mapped to one row, or to a row per element if the mapping has elements.
+ * The rows of a shared mapping are written once per ID, for resources that
+ * are embedded in every bundle referencing them.
+ *
+ * Oct 18, 2026 1:22:07 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ * @param <R> FHIR resource type
+ */
+public final class TableMapping<R extends Resource> {
+
+    private final Table table;
+    private final Class<R> resourceType;
+    private final List<Column<R>> columns;
+    private final Function<? super R, ? extends List<?>> elements;
+    private final boolean shared;
+
+    private TableMapping(Table table, Class<R> resourceType, List<Column<R>> columns, Function<? super R, ? extends List<?>> elements, boolean shared) {
+        this.table = table;
+        this.resourceType = resourceType;
+        this.columns = columns;
+        this.elements = elements;
+        this.shared = shared;
+    }
+
+    public static <R extends Resource> Builder<R> builder(Table table, Class<R> resourceType) {
+        return new Builder<>(table, resourceType);
+    }
+
+    /**
+     * Compile the mapping into a row mapper.
+     *
+     * @return a new row mapper
+     */
+    public RowMapper<R> compile() {
+        return new RowMapper<>(table, resourceType, columns, elements, shared);
+    }
+
+    /**
+     * Get the key-only version of the mapping, which extracts only the ID
+     * columns and the time columns and leaves the other columns null. Key-only
+     * rows are enough to assign the custom IDs of a table that is not
+     * written, and to decide which rows would be exported.
+     *
+     * @return the key-only mapping
+     */
+    public TableMapping<R> keys() {
+        ColumnType[] columnTypes = table.getColumnTypes();
+        List<Column<R>> keyColumns = new LinkedList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            Column<R> column = columns.get(i);
+            boolean isTime = columnTypes[i] == ColumnType.DATE || columnTypes[i] == ColumnType.TIMESTAMP;
+            keyColumns.add((column.idTable() != null || isTime) ? column : new Column<>((resource, index, element, value) -> null, null, false));
+        }
+
+        return new TableMapping<>(table, resourceType, List.copyOf(keyColumns), elements, shared);
+    }
+
+    /**
+     * @return true if a column assigns custom IDs of the given table
+     */
+    public boolean assignsIds(Table idTable) {
+        return columns.stream().anyMatch(column -> column.assignId() && column.idTable() == idTable);
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public Class<R> getResourceType() {
+        return resourceType;
+    }
+
+    public List<Column<R>> getColumns() {
+        return columns;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * A column value extractor. ID columns extract the Synthea ID, which is
+     * replaced with the custom ID of the given table when the row is written.
+     *
+     * @param <R> FHIR resource type
+     */
+    public record Column<R>(ElementExtractor<? super R> extractor, Table idTable, boolean assignId) {
+
+    }
+
+    public static final class Builder<R extends Resource> {
+
+        private final Table table;
+        private final Class<R> resourceType;
+        private final List<Column<R>> columns = new LinkedList<>();
+        private Function<? super R, ? extends List<?>> elements;
+        private boolean shared;
+
+        private Builder(Table table, Class<R> resourceType) {
+            this.table = table;
+            this.resourceType = resourceType;
+        }
+
+        public Builder<R> column(Function<? super R, ?> extractor) {
+            return indexedColumn((resource, index) -> extractor.apply(resource));
+        }
+
+        /**
+         * Add a column whose value also depends on the position of the
+         * resource in its bundle.
+         */
+        public Builder<R> indexedColumn(ColumnExtractor<? super R> extractor) {
+            columns.add(new Column<>((resource, index, element, value) -> extractor.extract(resource, index), null, false));
+
+            return this;
+        }
+
+        /**
+         * Map each resource to a row per element of the given list instead of
+         * one row. The list is built once per resource, so the element
+         * columns do not have to search the resource again for each row.
+         */
+        public Builder<R> elements(Function<? super R, ? extends List<?>> elements) {
+            this.elements = elements;
+
+            return this;
+        }
+
+        /**
+         * Write the row of a resource only the first time its ID is seen, for
+         * resources, such as organizations, that are embedded in every
+         * bundle referencing them. The first column must assign the ID of
+         * the table.
+         */
+        public Builder<R> shared() {
+            this.shared = true;
+
+            return this;
+        }
+
+        /**
+         * Add a column whose value is extracted from the element of the row.
+         */
+        public <E> Builder<R> elementColumn(Class<E> elementType, Function<? super E, ?> extractor) {
+            columns.add(new Column<>((resource, index, element, value) -> extractor.apply(elementType.cast(value)), null, false));
+
+            return this;
+        }
+
+        /**
+         * Add an ID column whose custom ID is created if it does not exist.
+         */
+        public Builder<R> assignedId(Table idTable, Function<? super R, String> syntheaId) {
+            columns.add(new Column<>((resource, index, element, value) -> syntheaId.apply(resource), idTable, true));
+
+            return this;
+        }
+
+        /**
+         * Add an ID column whose custom ID is created if it does not exist.
+         * The first element has the Synthea ID of the resource and the
+         * others syntheaId#element.
+         */
+        public Builder<R> assignedElementId(Table idTable, Function<? super R, String> syntheaId) {
+            columns.add(new Column<>((resource, index, element, value) -> (element == 0) ? syntheaId.apply(resource) : syntheaId.apply(resource) + "#" + element, idTable, true));
+
+            return this;
+        }
+
+        /**
+         * Add an ID column referencing a row that must already have a custom
+         * ID.
+         */
+        public Builder<R> referencedId(Table idTable, Function<? super R, String> syntheaId) {
+            columns.add(new Column<>((resource, index, element, value) -> syntheaId.apply(resource), idTable, false));
+
+            return this;
+        }
+
+        public TableMapping<R> build() {
+            if (columns.size() > table.getHeaders().length) {
+                throw new IllegalStateException(String.format("Table %s has only %d columns.", table.getName(), table.getHeaders().length));
+            }
+            if (shared && (columns.isEmpty() || !columns.get(0).assignId() || columns.get(0).idTable() != table || elements != null)) {
+                throw new IllegalStateException(String.format("Shared mapping of table %s must assign its ID in the first column.", table.getName()));
+            }
+
+            return new TableMapping<>(table, resourceType, List.copyOf(columns), elements, shared);
+        }
+
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+
+/**
+ * Gives each table opened on another sink its own writer thread.
+ *
+ * Oct 18, 2026 11:52:04 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class AsyncOutputSink implements OutputSink {
+
+    private final OutputSink outputSink;
+    private final int bufferSize;
+    private final int numOfBuffers;
+
+    /**
+     * @param outputSink sink the rows are written to
+     * @param bufferSize number of rows per buffer
+     * @param numOfBuffers number of buffers per table
+     */
+    public AsyncOutputSink(OutputSink outputSink, int bufferSize, int numOfBuffers) {
+        this.outputSink = outputSink;
+        this.bufferSize = bufferSize;
+        this.numOfBuffers = numOfBuffers;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        return new AsyncTableWriter(outputSink.open(table), "writer-" + table.getName(), bufferSize, numOfBuffers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputSink.close();
+    }
+
+}
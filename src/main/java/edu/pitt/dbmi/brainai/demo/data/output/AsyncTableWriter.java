@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes rows to another writer on a dedicated thread. The caller fills a
+ * buffer of rows and hands it off to the writer thread, which hands it back
+ * once the rows are written. There is a fixed number of buffers (two for
+ * double buffering), so the caller blocks when the writer thread falls
+ * behind.
+ *
+ * Oct 18, 2026 11:36:20 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class AsyncTableWriter implements TableWriter {
+
+    private static final List<Object[]> END_OF_ROWS = new ArrayList<>(0);
+
+    private final TableWriter writer;
+    private final int bufferSize;
+
+    private final BlockingQueue<List<Object[]>> freeBuffers = new LinkedBlockingQueue<>();
+    private final BlockingQueue<List<Object[]>> fullBuffers = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    private List<Object[]> buffer;
+    private volatile Throwable failure;
+    private boolean closed;
+
+    /**
+     * @param writer writer used by the writer thread
+     * @param name name of the writer thread
+     * @param bufferSize number of rows per buffer
+     * @param numOfBuffers number of buffers
+     */
+    public AsyncTableWriter(TableWriter writer, String name, int bufferSize, int numOfBuffers) {
+        if (bufferSize < 1 || numOfBuffers < 2) {
+            throw new IllegalArgumentException("There must be at least two buffers of at least one row.");
+        }
+
+        this.writer = writer;
+        this.bufferSize = bufferSize;
+        for (int i = 0; i < numOfBuffers; i++) {
+            freeBuffers.add(new ArrayList<>(bufferSize));
+        }
+
+        this.thread = new Thread(this::writeBuffers, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void write(List<?> row) {
+        checkFailure();
+        if (buffer == null) {
+            buffer = takeBuffer();
+        }
+
+        buffer.add(row.toArray());
+        if (buffer.size() >= bufferSize) {
+            handOff(buffer);
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try (writer) {
+            if (buffer != null && !buffer.isEmpty()) {
+                fullBuffers.put(buffer);
+            }
+            buffer = null;
+            fullBuffers.put(END_OF_ROWS);
+            thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer thread.");
+        }
+
+        if (failure != null) {
+            throw new IOException("Unable to write rows.", failure);
+        }
+    }
+
+    private void writeBuffers() {
+        try {
+            List<Object[]> rows;
+            while ((rows = fullBuffers.take()) != END_OF_ROWS) {
+                // after a failure keep recycling buffers so the caller does not block
+                if (failure == null) {
+                    try {
+                        for (Object[] row : rows) {
+                            writer.write(Arrays.asList(row));
+                        }
+                    } catch (Throwable throwable) {
+                        failure = throwable;
+                    }
+                }
+                rows.clear();
+                freeBuffers.put(rows);
+            }
+        } catch (InterruptedException exception) {
+            failure = exception;
+        }
+    }
+
+    private List<Object[]> takeBuffer() {
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for a free buffer."));
+        }
+    }
+
+    private void handOff(List<Object[]> rows) {
+        try {
+            fullBuffers.put(rows);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while handing off rows."));
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException(new IOException("Unable to write rows.", failure));
+        }
+    }
+
+}
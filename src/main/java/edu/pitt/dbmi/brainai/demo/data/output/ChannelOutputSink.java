@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Writes each table to a tab-separated file in the output directory through
+ * a file channel. The files are the same as those of {@link TsvOutputSink},
+ * since both encode in UTF-8.
+ *
+ * Oct 18, 2026 11:02:47 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ChannelOutputSink implements OutputSink {
+
+    /**
+     * When the written bytes are forced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Leave it to the operating system.
+         */
+        NEVER,
+        /**
+         * Once, when the table is closed.
+         */
+        CLOSE,
+        /**
+         * Each time the buffer is written to the file, and when the table is
+         * closed.
+         */
+        FLUSH
+    }
+
+    private final Path outDir;
+    private final boolean append;
+    private final int bufferSize;
+    private final Map<Table, Long> preallocations;
+    private final FsyncPolicy fsyncPolicy;
+
+    /**
+     * @param outDir output directory
+     * @param append add rows to existing files, which keep their header line
+     * @param bufferSize size of the direct buffer of each table in bytes
+     * @param preallocations bytes each table file is extended to before
+     * writing; a hint for big tables, ignored when appending
+     * @param fsyncPolicy when the written bytes are forced to the device
+     */
+    public ChannelOutputSink(Path outDir, boolean append, int bufferSize, Map<Table, Long> preallocations, FsyncPolicy fsyncPolicy) {
+        this.outDir = outDir;
+        this.append = append;
+        this.bufferSize = bufferSize;
+        this.preallocations = preallocations;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Parse preallocation hints of the form observations:2048;encounters:256,
+     * in megabytes.
+     *
+     * @param preallocations preallocation hints
+     * @return bytes of each table
+     * @throws IllegalArgumentException if the hints are invalid
+     */
+    public static Map<Table, Long> parsePreallocations(String preallocations) {
+        Map<Table, Long> tablePreallocations = new EnumMap<>(Table.class);
+        for (String tablePreallocation : preallocations.split(";")) {
+            String[] fields = tablePreallocation.split(":");
+            if (fields.length != 2) {
+                throw new IllegalArgumentException(String.format("Invalid preallocation %s.", tablePreallocation));
+            }
+
+            Table table = Table.fromName(fields[0].trim());
+            long megabytes;
+            try {
+                megabytes = Long.parseLong(fields[1].trim());
+            } catch (NumberFormatException exception) {
+                throw new IllegalArgumentException(String.format("Invalid preallocation %s.", tablePreallocation));
+            }
+            tablePreallocations.put(table, megabytes << 20);
+        }
+
+        return tablePreallocations;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        Path file = outDir.resolve(table.getFileName());
+        if (append && Files.exists(file) && Files.size(file) > 0) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return open(channel, table, false, 0);
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        // the normalized layout shares the preallocation of the default layout
+        long preallocate = preallocations.getOrDefault(Table.fromName(table.getName()), 0L);
+        return open(channel, table, true, preallocate);
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    private TableWriter open(FileChannel channel, Table table, boolean writeHeader, long preallocate) throws IOException {
+        try {
+            return new ChannelTableWriter(channel, table, writeHeader, bufferSize, preallocate, fsyncPolicy);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.ProgressReporter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Counts the rows written to each table of another sink for the progress
+ * reporter.
+ *
+ * Oct 18, 2026 7:41:09 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CountingOutputSink implements OutputSink {
+
+    private final OutputSink outputSink;
+    private final ProgressReporter progressReporter;
+
+    public CountingOutputSink(OutputSink outputSink, ProgressReporter progressReporter) {
+        this.outputSink = outputSink;
+        this.progressReporter = progressReporter;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        TableWriter tableWriter = outputSink.open(table);
+
+        return new TableWriter() {
+            @Override
+            public void write(List<?> row) {
+                tableWriter.write(row);
+                progressReporter.rowWritten(table);
+            }
+
+            @Override
+            public void close() throws IOException {
+                tableWriter.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputSink.close();
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.ColumnType;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Loads the tables directly into a database, such as an embedded H2 database.
+ * Tables are created without constraints. The primary keys and foreign keys
+ * on the custom IDs are added when the sink is closed, after all rows have
+ * been loaded, and closing fails if any of them cannot be added. In append
+ * mode, existing tables are kept and no constraints are added, since rows
+ * are then loaded in several runs.
+ *
+ * Oct 18, 2026 9:45:13 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class JdbcOutputSink implements OutputSink {
+
+    private final String url;
+    private final int batchSize;
+    private final int commitInterval;
+    private final boolean append;
+
+    private final Set<Table> tables = EnumSet.noneOf(Table.class);
+
+    /**
+     * @param url JDBC URL of the database
+     * @param batchSize number of rows sent to the database at once
+     * @param commitInterval number of rows per transaction
+     */
+    public JdbcOutputSink(String url, int batchSize, int commitInterval) {
+        this(url, batchSize, commitInterval, false);
+    }
+
+    /**
+     * @param url JDBC URL of the database
+     * @param batchSize number of rows sent to the database at once
+     * @param commitInterval number of rows per transaction
+     * @param append add rows to existing tables instead of replacing them
+     */
+    public JdbcOutputSink(String url, int batchSize, int commitInterval, boolean append) {
+        if (batchSize < 1 || commitInterval < 1) {
+            throw new IllegalArgumentException("Batch size and commit interval must be positive.");
+        }
+
+        this.url = url;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.append = append;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        try {
+            try (Connection connection = DriverManager.getConnection(url);
+                    Statement statement = connection.createStatement()) {
+                if (append) {
+                    statement.execute(toCreateStatement(table).replaceFirst("CREATE TABLE ", "CREATE TABLE IF NOT EXISTS "));
+                } else {
+                    statement.execute(String.format("DROP TABLE IF EXISTS %s CASCADE", quote(table.getName())));
+                    statement.execute(toCreateStatement(table));
+                }
+            }
+            synchronized (tables) {
+                tables.add(table);
+            }
+
+            return new JdbcTableWriter(DriverManager.getConnection(url), table, batchSize, commitInterval);
+        } catch (SQLException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (append) {
+            return;
+        }
+
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            // primary keys first since the foreign keys reference them
+            for (Table table : tables) {
+                if (table.hasPrimaryKey()) {
+                    addConstraint(statement, table, String.format("ALTER TABLE %s ADD CONSTRAINT %s PRIMARY KEY (%s)",
+                            quote(table.getName()), quote("pk_" + table.getName()), quote("id")));
+                }
+            }
+            for (Table table : tables) {
+                for (String header : table.getHeaders()) {
+                    Table referencedTable = Table.getReferencedTable(header);
+                    if (referencedTable != null && referencedTable != table && tables.contains(referencedTable)) {
+                        addConstraint(statement, table, String.format("ALTER TABLE %s ADD CONSTRAINT %s FOREIGN KEY (%s) REFERENCES %s (%s)",
+                                quote(table.getName()), quote("fk_" + table.getName() + "_" + header), quote(header), quote(referencedTable.getName()), quote("id")));
+                    }
+                }
+            }
+        } catch (SQLException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * @throws IOException if the constraint cannot be added, e.g. because of
+     * a duplicate or dangling ID, so a run never ends without its constraints
+     */
+    private static void addConstraint(Statement statement, Table table, String sql) throws IOException {
+        try {
+            statement.execute(sql);
+        } catch (SQLException exception) {
+            throw new IOException(String.format("Unable to add constraint to table %s: %s", table.getName(), exception.getMessage()), exception);
+        }
+    }
+
+    private static String toCreateStatement(Table table) {
+        String[] headers = table.getHeaders();
+        ColumnType[] columnTypes = table.getColumnTypes();
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("CREATE TABLE ").append(quote(table.getName())).append(" (");
+        for (int i = 0; i < headers.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(quote(headers[i])).append(' ').append(toSqlTypeName(columnTypes[i]));
+
+            // primary key columns must not be nullable
+            if (table.hasPrimaryKey() && headers[i].equals("id")) {
+                sql.append(" NOT NULL");
+            }
+        }
+        sql.append(')');
+
+        return sql.toString();
+    }
+
+    static String toInsertStatement(Table table) {
+        String[] headers = table.getHeaders();
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(quote(table.getName())).append(" (");
+        for (int i = 0; i < headers.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(quote(headers[i]));
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < headers.length; i++) {
+            sql.append((i > 0) ? ", ?" : "?");
+        }
+        sql.append(')');
+
+        return sql.toString();
+    }
+
+    static int toSqlType(ColumnType columnType) {
+        return switch (columnType) {
+            case DATE ->
+                Types.DATE;
+            case TIMESTAMP ->
+                Types.TIMESTAMP;
+            case DECIMAL ->
+                Types.NUMERIC;
+            default ->
+                Types.VARCHAR;
+        };
+    }
+
+    private static String toSqlTypeName(ColumnType columnType) {
+        return switch (columnType) {
+            case ID ->
+                "VARCHAR(64)";
+            case DATE ->
+                "DATE";
+            case TIMESTAMP ->
+                "TIMESTAMP";
+            case DECIMAL ->
+                "NUMERIC";
+            default ->
+                "VARCHAR";
+        };
+    }
+
+    /**
+     * Quote an identifier since some column names, such as end, are reserved
+     * words.
+     */
+    private static String quote(String identifier) {
+        return '"' + identifier + '"';
+    }
+
+}
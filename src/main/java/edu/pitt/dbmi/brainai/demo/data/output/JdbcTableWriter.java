@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.ColumnType;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Inserts rows into a database table using batched prepared statements.
+ *
+ * Oct 18, 2026 9:52:26 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class JdbcTableWriter implements TableWriter {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ColumnType[] columnTypes;
+    private final int batchSize;
+    private final int commitInterval;
+
+    private long numOfRows;
+
+    /**
+     * @param connection connection used only by this writer
+     * @param table output table, which must already exist in the database
+     * @param batchSize number of rows sent to the database at once
+     * @param commitInterval number of rows per transaction
+     * @throws SQLException
+     */
+    public JdbcTableWriter(Connection connection, Table table, int batchSize, int commitInterval) throws SQLException {
+        this.connection = connection;
+        this.columnTypes = table.getColumnTypes();
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+
+        connection.setAutoCommit(false);
+        this.statement = connection.prepareStatement(JdbcOutputSink.toInsertStatement(table));
+    }
+
+    @Override
+    public void write(List<?> row) {
+        try {
+            int size = row.size();
+            for (int i = 0; i < columnTypes.length; i++) {
+                bind(i + 1, (i < size) ? row.get(i) : null, columnTypes[i]);
+            }
+            statement.addBatch();
+            numOfRows++;
+
+            if (numOfRows % batchSize == 0) {
+                statement.executeBatch();
+            }
+            if (numOfRows % commitInterval == 0) {
+                statement.executeBatch();
+                connection.commit();
+            }
+        } catch (SQLException exception) {
+            throw new UncheckedIOException(new IOException(exception));
+        }
+    }
+
+    private void bind(int index, Object value, ColumnType columnType) throws SQLException {
+        if (value == null || (columnType != ColumnType.STRING && "".equals(value))) {
+            statement.setNull(index, JdbcOutputSink.toSqlType(columnType));
+        } else if (value instanceof Date date) {
+            if (columnType == ColumnType.DATE) {
+                statement.setDate(index, new java.sql.Date(date.getTime()));
+            } else {
+                statement.setTimestamp(index, new Timestamp(date.getTime()));
+            }
+        } else if (value instanceof BigDecimal decimal) {
+            statement.setBigDecimal(index, decimal);
+        } else {
+            statement.setString(index, value.toString());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (connection; statement) {
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+}
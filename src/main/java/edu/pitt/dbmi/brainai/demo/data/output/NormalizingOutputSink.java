@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the observations and the medication administrations of another sink
+ * in a normalized layout. The code and display columns, which repeat on
+ * every row, are written once to a dictionary table, observation_codes or
+ * medications, and the fact table references the dictionary row by its
+ * custom ID, e.g. obs_code_1, in the observation_code_id or medication_id
+ * column. Joining the fact table back to its dictionary gives the rows of the
+ * default layout.
+ *
+ * The dictionary IDs are assigned by the order in which the codes are first
+ * written, so they are not stable across runs.
+ *
+ * Oct 18, 2026 10:48:22 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class NormalizingOutputSink implements OutputSink {
+
+    private static final Map<Table, Normalization> NORMALIZATIONS = Map.of(
+            Table.OBSERVATION, new Normalization(Table.OBSERVATION, Table.NORMALIZED_OBSERVATION, Table.OBSERVATION_CODE),
+            Table.MEDICATION_ADMINISTRATION, new Normalization(Table.MEDICATION_ADMINISTRATION, Table.NORMALIZED_MEDICATION_ADMINISTRATION, Table.MEDICATION));
+
+    private final OutputSink outputSink;
+
+    public NormalizingOutputSink(OutputSink outputSink) {
+        this.outputSink = outputSink;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        Normalization normalization = NORMALIZATIONS.get(table);
+        if (normalization == null) {
+            return outputSink.open(table);
+        }
+
+        TableWriter factWriter = outputSink.open(normalization.normalizedTable);
+        TableWriter dictionaryWriter;
+        try {
+            dictionaryWriter = outputSink.open(normalization.dictionaryTable);
+        } catch (IOException | RuntimeException exception) {
+            factWriter.close();
+            throw exception;
+        }
+
+        return new NormalizingTableWriter(normalization, factWriter, dictionaryWriter);
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputSink.close();
+    }
+
+    /**
+     * Column positions of a fact table in the normalized layout. The columns
+     * of the dictionary table, other than its ID, are taken out of the fact
+     * table and replaced by the dictionary ID column.
+     */
+    private static class Normalization {
+
+        private final Table normalizedTable;
+        private final Table dictionaryTable;
+
+        /**
+         * Column of the default layout of each column of the normalized
+         * layout, or -1 for the dictionary ID.
+         */
+        private final int[] factColumns;
+
+        /**
+         * Column of the default layout of each dictionary column after the
+         * ID.
+         */
+        private final int[] dictionaryColumns;
+
+        public Normalization(Table table, Table normalizedTable, Table dictionaryTable) {
+            this.normalizedTable = normalizedTable;
+            this.dictionaryTable = dictionaryTable;
+
+            String[] dictionaryHeaders = dictionaryTable.getHeaders();
+            this.dictionaryColumns = new int[dictionaryHeaders.length - 1];
+            for (int i = 0; i < dictionaryColumns.length; i++) {
+                dictionaryColumns[i] = table.getColumnIndex(dictionaryHeaders[i + 1]);
+            }
+
+            String[] normalizedHeaders = normalizedTable.getHeaders();
+            this.factColumns = new int[normalizedHeaders.length];
+            for (int i = 0; i < factColumns.length; i++) {
+                factColumns[i] = (Table.getReferencedTable(normalizedHeaders[i]) == dictionaryTable)
+                        ? -1
+                        : table.getColumnIndex(normalizedHeaders[i]);
+            }
+        }
+
+    }
+
+    /**
+     * Writes the rows of one fact table and its dictionary. Each writer has
+     * its own dictionary since each table is written by only one thread.
+     */
+    private static class NormalizingTableWriter implements TableWriter {
+
+        private final Normalization normalization;
+        private final TableWriter factWriter;
+        private final TableWriter dictionaryWriter;
+
+        private final Map<List<Object>, String> dictionaryIds = new HashMap<>();
+
+        private final List<Object> factRow = new ArrayList<>();
+        private final List<Object> dictionaryRow = new ArrayList<>();
+
+        public NormalizingTableWriter(Normalization normalization, TableWriter factWriter, TableWriter dictionaryWriter) {
+            this.normalization = normalization;
+            this.factWriter = factWriter;
+            this.dictionaryWriter = dictionaryWriter;
+        }
+
+        @Override
+        public void write(List<?> row) {
+            Object[] codes = new Object[normalization.dictionaryColumns.length];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = getValue(row, normalization.dictionaryColumns[i]);
+            }
+            List<Object> key = Arrays.asList(codes);
+            String dictionaryId = dictionaryIds.get(key);
+            if (dictionaryId == null) {
+                dictionaryId = normalization.dictionaryTable.getIdPrefix() + (dictionaryIds.size() + 1);
+                dictionaryIds.put(key, dictionaryId);
+
+                dictionaryRow.clear();
+                dictionaryRow.add(dictionaryId);
+                dictionaryRow.addAll(key);
+                dictionaryWriter.write(dictionaryRow);
+            }
+
+            factRow.clear();
+            for (int column : normalization.factColumns) {
+                factRow.add((column < 0) ? dictionaryId : getValue(row, column));
+            }
+            factWriter.write(factRow);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                factWriter.close();
+            } finally {
+                dictionaryWriter.close();
+            }
+        }
+
+        private static Object getValue(List<?> row, int column) {
+            return (column < row.size()) ? row.get(column) : null;
+        }
+
+    }
+
+}
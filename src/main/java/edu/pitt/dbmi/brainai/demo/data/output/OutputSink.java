@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the output tables.
+ *
+ * Oct 18, 2026 9:24:18 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * Open a writer for the given table. The writer must be closed before the
+     * sink is closed.
+     *
+     * @param table output table
+     * @return a writer for the table
+     * @throws IOException
+     */
+    TableWriter open(Table table) throws IOException;
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Creates the output sink selected on the command line.
+ *
+ * <pre>
+ * --output=tsv              tab-separated files in the output directory (default)
+ * --output=tsv-channel      tab-separated files written through file channels
+ * --channel-buffer-size=N   bytes of the direct buffer of each table (default 1048576)
+ * --preallocate=SIZES       megabytes each big table file is extended to before writing,
+ *                           e.g. observations:2048;encounters:256 (tsv-channel only)
+ * --fsync=never|close|flush force the written bytes to the device never (default), when
+ *                           each table is closed, or each time a buffer is written
+ *                           (tsv-channel only)
+ * --output=h2               embedded H2 database in the output directory
+ * --jdbc-url=URL            database to load instead of the embedded H2 database
+ * --batch-size=N            rows per JDBC batch (default 1000)
+ * --commit-interval=N       rows per JDBC transaction (default 100000)
+ * --sort=KEYS              sort tables by key columns, e.g.
+ *                           observations:patient_id,effective;encounters:patient_id,start
+ * --sort-buffer-rows=N      rows held in memory per sorted table (default 1000000)
+ * --sort-temp-dir=DIR       directory of the sorted runs (default system temp directory)
+ * --normalize-codes=BOOLEAN write the observation codes and the medications to
+ *                           dictionary tables referenced by ID (default false)
+ * --append=BOOLEAN          add rows to existing tables instead of replacing them (default false)
+ * --async-writers=BOOLEAN   write each table on its own thread (default true)
+ * --writer-buffer-rows=N    rows handed off to a writer thread at once (default 4096)
+ * --writer-buffers=N        buffers per writer thread, at least 2 (default 2)
+ * </pre>
+ *
+ * Oct 18, 2026 10:04:51 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class OutputSinks {
+
+    private OutputSinks() {
+    }
+
+    public static OutputSink create(Path outDir, Arguments arguments) {
+        return create(outDir, arguments, arguments.getBoolean("append", false));
+    }
+
+    /**
+     * @param outDir output directory
+     * @param arguments output options
+     * @param append add rows to existing tables instead of replacing them
+     * @return the output sink
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public static OutputSink create(Path outDir, Arguments arguments, boolean append) {
+        OutputSink outputSink = createSink(outDir, arguments, append);
+        if (arguments.getBoolean("normalize-codes", false)) {
+            if (append) {
+                throw new IllegalArgumentException("Option --normalize-codes cannot be used when appending.");
+            }
+            outputSink = new NormalizingOutputSink(outputSink);
+        }
+        if (arguments.has("sort")) {
+            outputSink = new SortingOutputSink(outputSink,
+                    SortingOutputSink.parseSortKeys(arguments.getString("sort", null)),
+                    arguments.getInt("sort-buffer-rows", 1000000),
+                    Paths.get(arguments.getString("sort-temp-dir", System.getProperty("java.io.tmpdir"))));
+        }
+        if (arguments.getBoolean("async-writers", true)) {
+            outputSink = new AsyncOutputSink(outputSink,
+                    arguments.getInt("writer-buffer-rows", 4096),
+                    arguments.getInt("writer-buffers", 2));
+        }
+
+        return outputSink;
+    }
+
+    private static OutputSink createSink(Path outDir, Arguments arguments, boolean append) {
+        String output = arguments.getString("output", "tsv");
+        switch (output) {
+            case "tsv":
+                return new TsvOutputSink(outDir, append);
+            case "tsv-channel":
+                return new ChannelOutputSink(outDir, append,
+                        arguments.getInt("channel-buffer-size", 1 << 20),
+                        arguments.has("preallocate") ? ChannelOutputSink.parsePreallocations(arguments.getString("preallocate", null)) : Map.of(),
+                        getFsyncPolicy(arguments.getString("fsync", "never")));
+            case "h2":
+                String defaultUrl = "jdbc:h2:file:" + outDir.resolve("brainai").toAbsolutePath();
+                return new JdbcOutputSink(
+                        arguments.getString("jdbc-url", defaultUrl),
+                        arguments.getInt("batch-size", 1000),
+                        arguments.getInt("commit-interval", 100000),
+                        append);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown output %s.", output));
+        }
+    }
+
+    private static ChannelOutputSink.FsyncPolicy getFsyncPolicy(String fsync) {
+        switch (fsync) {
+            case "never":
+                return ChannelOutputSink.FsyncPolicy.NEVER;
+            case "close":
+                return ChannelOutputSink.FsyncPolicy.CLOSE;
+            case "flush":
+                return ChannelOutputSink.FsyncPolicy.FLUSH;
+            default:
+                throw new IllegalArgumentException(String.format("Unknown fsync policy %s.", fsync));
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sorts the rows of some of the tables opened on another sink.
+ *
+ * Oct 18, 2026 5:44:09 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class SortingOutputSink implements OutputSink {
+
+    private final OutputSink outputSink;
+    private final Map<Table, int[]> tableKeyColumns;
+    private final int bufferSize;
+    private final Path tempDir;
+
+    /**
+     * @param outputSink sink the sorted rows are written to
+     * @param tableKeyColumns key column indexes of the sorted tables
+     * @param bufferSize maximum number of rows held in memory per table
+     * @param tempDir directory of the sorted runs
+     */
+    public SortingOutputSink(OutputSink outputSink, Map<Table, int[]> tableKeyColumns, int bufferSize, Path tempDir) {
+        this.outputSink = outputSink;
+        this.tableKeyColumns = tableKeyColumns;
+        this.bufferSize = bufferSize;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Parse sort keys of the form
+     * observations:patient_id,effective;encounters:patient_id,start
+     *
+     * @param sortKeys sort keys of each table
+     * @return key column indexes of each table
+     * @throws IllegalArgumentException if the sort keys are invalid
+     */
+    public static Map<Table, int[]> parseSortKeys(String sortKeys) {
+        Map<Table, int[]> tableKeyColumns = new EnumMap<>(Table.class);
+        for (String tableSortKeys : sortKeys.split(";")) {
+            String[] fields = tableSortKeys.split(":");
+            if (fields.length != 2) {
+                throw new IllegalArgumentException(String.format("Invalid sort keys %s.", tableSortKeys));
+            }
+
+            Table table = Table.fromName(fields[0].trim());
+            String[] headers = fields[1].split(",");
+            int[] keyColumns = new int[headers.length];
+            for (int i = 0; i < headers.length; i++) {
+                keyColumns[i] = table.getColumnIndex(headers[i].trim());
+                if (keyColumns[i] < 0) {
+                    throw new IllegalArgumentException(String.format("Table %s has no column %s.", table.getName(), headers[i]));
+                }
+            }
+            tableKeyColumns.put(table, keyColumns);
+        }
+
+        return tableKeyColumns;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        TableWriter writer = outputSink.open(table);
+        int[] keyColumns = tableKeyColumns.get(table);
+
+        return (keyColumns == null)
+                ? writer
+                : new SortingTableWriter(writer, table, keyColumns, bufferSize, tempDir);
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputSink.close();
+    }
+
+}
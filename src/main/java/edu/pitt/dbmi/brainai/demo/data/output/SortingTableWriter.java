@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.ColumnType;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.RowCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Writes rows to another writer in the order of a set of key columns, using a
+ * bounded-memory external merge sort. Rows are buffered in memory, and each
+ * full buffer is sorted and spilled to a temporary file as a sorted run. When
+ * the writer is closed, the runs are merged with a k-way heap. Rows with equal
+ * keys keep the order they were written in.
+ *
+ * The keys are compared as primitives: dates by time, decimals by value and
+ * custom IDs by their numeric part. Missing or invalid key values sort last.
+ *
+ * Oct 18, 2026 5:21:40 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class SortingTableWriter implements TableWriter {
+
+    private static final Comparator<Record> RECORD_ORDER = SortingTableWriter::compare;
+
+    private final TableWriter writer;
+    private final Table table;
+    private final int[] keyColumns;
+    private final int bufferSize;
+    private final Path tempDir;
+
+    private final List<Record> buffer;
+    private final List<Path> runs = new LinkedList<>();
+    private long sequence;
+
+    /**
+     * @param writer writer the sorted rows are written to
+     * @param table output table
+     * @param keyColumns indexes of the key columns
+     * @param bufferSize maximum number of rows held in memory
+     * @param tempDir directory of the sorted runs
+     */
+    public SortingTableWriter(TableWriter writer, Table table, int[] keyColumns, int bufferSize, Path tempDir) {
+        ColumnType[] columnTypes = table.getColumnTypes();
+        for (int keyColumn : keyColumns) {
+            if (columnTypes[keyColumn] == ColumnType.STRING) {
+                throw new IllegalArgumentException(String.format("Column %s of table %s cannot be a sort key.", table.getHeaders()[keyColumn], table.getName()));
+            }
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Sort buffer size must be positive.");
+        }
+
+        this.writer = writer;
+        this.table = table;
+        this.keyColumns = keyColumns;
+        this.bufferSize = bufferSize;
+        this.tempDir = tempDir;
+        this.buffer = new ArrayList<>(Math.min(bufferSize, 1 << 16));
+    }
+
+    @Override
+    public void write(List<?> row) {
+        Object[] values = row.toArray();
+        long[] keys = new long[keyColumns.length];
+        for (int i = 0; i < keys.length; i++) {
+            int column = keyColumns[i];
+            keys[i] = toKey((column < values.length) ? values[column] : null, table.getColumnTypes()[column]);
+        }
+        buffer.add(new Record(keys, sequence++, values));
+
+        if (buffer.size() >= bufferSize) {
+            try {
+                spill();
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (writer) {
+            if (runs.isEmpty()) {
+                buffer.sort(RECORD_ORDER);
+                for (Record record : buffer) {
+                    writer.write(Arrays.asList(record.row));
+                }
+                buffer.clear();
+            } else {
+                if (!buffer.isEmpty()) {
+                    spill();
+                }
+                merge();
+            }
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            runs.clear();
+        }
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(RECORD_ORDER);
+
+        Path run = Files.createTempFile(tempDir, table.getName() + "-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            for (Record record : buffer) {
+                for (long key : record.keys) {
+                    out.writeLong(key);
+                }
+                out.writeLong(record.sequence);
+                RowCodec.writeRow(out, record.row);
+            }
+        }
+        buffer.clear();
+    }
+
+    private void merge() throws IOException {
+        PriorityQueue<RunReader> heap = new PriorityQueue<>(runs.size(), (a, b) -> compare(a.record, b.record));
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run, keyColumns.length);
+                if (reader.next()) {
+                    heap.add(reader);
+                } else {
+                    reader.in.close();
+                }
+            }
+
+            RunReader reader;
+            while ((reader = heap.poll()) != null) {
+                writer.write(Arrays.asList(reader.record.row));
+                if (reader.next()) {
+                    heap.add(reader);
+                } else {
+                    reader.in.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : heap) {
+                reader.in.close();
+            }
+        }
+    }
+
+    private static long toKey(Object value, ColumnType columnType) {
+        if (value instanceof Date date) {
+            return date.getTime();
+        } else if (value instanceof BigDecimal decimal) {
+            return toSortableBits(decimal.doubleValue());
+        } else if (value instanceof String string && columnType == ColumnType.ID) {
+            return parseIdNumber(string);
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Map a double to a long that sorts in the same order.
+     */
+    private static long toSortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Parse the numeric part of a custom ID, e.g. 12 for enc_12.
+     */
+    private static long parseIdNumber(String id) {
+        int start = id.lastIndexOf('_') + 1;
+        if (start == 0 || start == id.length() || id.length() - start > 18) {
+            return Long.MAX_VALUE;
+        }
+
+        long number = 0;
+        for (int i = start; i < id.length(); i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MAX_VALUE;
+            }
+            number = number * 10 + digit;
+        }
+
+        return number;
+    }
+
+    private static int compare(Record a, Record b) {
+        for (int i = 0; i < a.keys.length; i++) {
+            int result = Long.compare(a.keys[i], b.keys[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return Long.compare(a.sequence, b.sequence);
+    }
+
+    private record Record(long[] keys, long sequence, Object[] row) {
+
+    }
+
+    private static class RunReader {
+
+        private final DataInputStream in;
+        private final int numOfKeys;
+        private Record record;
+
+        public RunReader(Path run, int numOfKeys) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+            this.numOfKeys = numOfKeys;
+        }
+
+        public boolean next() throws IOException {
+            long[] keys = new long[numOfKeys];
+            try {
+                keys[0] = in.readLong();
+            } catch (EOFException exception) {
+                record = null;
+                return false;
+            }
+            for (int i = 1; i < numOfKeys; i++) {
+                keys[i] = in.readLong();
+            }
+            long sequence = in.readLong();
+            record = new Record(keys, sequence, RowCodec.readRow(in));
+
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * Writes rows of an output table.
+ *
+ * Oct 18, 2026 9:21:55 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public interface TableWriter extends Closeable {
+
+    /**
+     * Write a row. Values are in the column order of the table and are typed
+     * according to the table's column types. A row may be shorter than the
+     * table, in which case the remaining columns are empty. The row may be
+     * reused by the caller once this method returns.
+     *
+     * @param row column values
+     * @throws java.io.UncheckedIOException if the row cannot be written
+     */
+    void write(List<?> row);
+
+}
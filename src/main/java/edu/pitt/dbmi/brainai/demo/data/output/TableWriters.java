@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Writers of a set of tables opened on the same sink.
+ *
+ * Oct 18, 2026 2:15:36 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class TableWriters implements Closeable {
+
+    private final Map<Table, TableWriter> writers = new EnumMap<>(Table.class);
+
+    private TableWriters() {
+    }
+
+    /**
+     * Open a writer for each table. Writers already opened are closed if one
+     * fails to open.
+     *
+     * @param outputSink sink the tables are written to
+     * @param tables tables to open
+     * @return the writers
+     * @throws IOException
+     */
+    public static TableWriters open(OutputSink outputSink, Iterable<Table> tables) throws IOException {
+        TableWriters tableWriters = new TableWriters();
+        try {
+            for (Table table : tables) {
+                if (!tableWriters.writers.containsKey(table)) {
+                    tableWriters.writers.put(table, outputSink.open(table));
+                }
+            }
+        } catch (IOException | RuntimeException exception) {
+            try {
+                tableWriters.close();
+            } catch (IOException closeException) {
+                exception.addSuppressed(closeException);
+            }
+            throw exception;
+        }
+
+        return tableWriters;
+    }
+
+    /**
+     * @param table output table
+     * @return the writer of the table
+     * @throws IllegalArgumentException if the table was not opened
+     */
+    public TableWriter get(Table table) {
+        TableWriter writer = writers.get(table);
+        if (writer == null) {
+            throw new IllegalArgumentException(String.format("Table %s is not opened.", table.getName()));
+        }
+
+        return writer;
+    }
+
+    /**
+     * Close all the writers, even if some of them fail to close.
+     *
+     * @throws IOException the first failure, with the others suppressed
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (TableWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException exception) {
+                if (failure == null) {
+                    failure = exception;
+                } else {
+                    failure.addSuppressed(exception);
+                }
+            }
+        }
+        writers.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
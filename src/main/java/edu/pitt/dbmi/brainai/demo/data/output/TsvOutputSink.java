@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes each table to a tab-separated file in the output directory, encoded
+ * in UTF-8 whatever the platform default charset.
+ *
+ * Oct 18, 2026 9:38:02 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class TsvOutputSink implements OutputSink {
+
+    private final Path outDir;
+    private final boolean append;
+
+    public TsvOutputSink(Path outDir) {
+        this(outDir, false);
+    }
+
+    /**
+     * @param outDir output directory
+     * @param append add rows to existing files, which keep their header line
+     */
+    public TsvOutputSink(Path outDir, boolean append) {
+        this.outDir = outDir;
+        this.append = append;
+    }
+
+    @Override
+    public TableWriter open(Table table) throws IOException {
+        Path file = outDir.resolve(table.getFileName());
+        if (append && Files.exists(file) && Files.size(file) > 0) {
+            return new TsvTableWriter(new PrintWriter(Files.newOutputStream(file, StandardOpenOption.APPEND), false, StandardCharsets.UTF_8), table, false);
+        }
+
+        return new TsvTableWriter(new PrintWriter(Files.newOutputStream(file), false, StandardCharsets.UTF_8), table);
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+}
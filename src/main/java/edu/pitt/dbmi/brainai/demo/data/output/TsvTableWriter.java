@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.ColumnType;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.DateFormats;
+import edu.pitt.dbmi.brainai.demo.data.utils.DecimalFormatter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes rows as tab-separated lines. A missing value is written as an empty
+ * column. The print writer does not report I/O errors as they happen, so they
+ * are reported when the writer is closed.
+ *
+ * Oct 18, 2026 9:31:40 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class TsvTableWriter implements TableWriter {
+
+    private static final char DATA_DELIMITER = '\t';
+
+    private final PrintWriter writer;
+    private final Table table;
+    private final ColumnType[] columnTypes;
+
+    // date formats are not thread-safe so each writer has its own copies
+    private final DateFormat dateFormat = (DateFormat) DateFormats.MM_DD_YYYY.clone();
+    private final DateFormat dateTimeFormat = (DateFormat) DateFormats.MM_DD_YYYY_HHMMSS_AM.clone();
+
+    private final StringBuilder line = new StringBuilder();
+
+    public TsvTableWriter(PrintWriter writer, Table table) {
+        this(writer, table, true);
+    }
+
+    /**
+     * @param writer where the lines are written
+     * @param table the table
+     * @param writeHeader write the header line first, unless appending to a
+     * file that already has it
+     */
+    public TsvTableWriter(PrintWriter writer, Table table, boolean writeHeader) {
+        this.writer = writer;
+        this.table = table;
+        this.columnTypes = table.getColumnTypes();
+
+        // write out header
+        if (writeHeader) {
+            writer.println(String.join(String.valueOf(DATA_DELIMITER), table.getHeaders()));
+        }
+    }
+
+    @Override
+    public void write(List<?> row) {
+        line.setLength(0);
+        int size = row.size();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                line.append(DATA_DELIMITER);
+            }
+
+            Object value = row.get(i);
+            if (value instanceof Date date) {
+                line.append((columnTypes[i] == ColumnType.DATE) ? dateFormat.format(date) : dateTimeFormat.format(date));
+            } else if (value instanceof BigDecimal decimal) {
+                DecimalFormatter.append(decimal, line);
+            } else if (value != null) {
+                line.append(value);
+            }
+        }
+        writer.println(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        if (writer.checkError()) {
+            throw new IOException(String.format("Unable to write %s.", table.getFileName()));
+        }
+    }
+
+}
@@ -20,167 +20,263 @@ package edu.pitt.dbmi.brainai.demo.data.synthea;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.parser.IParser;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.mapping.BundleProjection;
+import edu.pitt.dbmi.brainai.demo.data.mapping.IdMaps;
+import edu.pitt.dbmi.brainai.demo.data.mapping.MappingEngine;
+import edu.pitt.dbmi.brainai.demo.data.mapping.ProjectionCache;
+import edu.pitt.dbmi.brainai.demo.data.mapping.TableMapping;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.hl7.fhir.r4.model.Bundle;
-import org.hl7.fhir.r4.model.Encounter;
-import org.hl7.fhir.r4.model.IdType;
-import org.hl7.fhir.r4.model.MedicationAdministration;
-import org.hl7.fhir.r4.model.Observation;
-import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
 
 /**
+ * A mapping job. Each job has its own configuration and custom IDs, so jobs
+ * can run one after another or concurrently in the same JVM. Only the FHIR
+ * context, which is thread-safe, is shared.
  *
  * Aug 2, 2022 1:11:19 PM
  *
  * @author Kevin V. Bui (kvb2univpitt@gmail.com)
  */
-public class AbstractSyntheaDataMapper {
+public abstract class AbstractSyntheaDataMapper {
 
-    protected static final String DATA_DELIMITER = "\t";
-
-    protected static final IParser JSON_PARSER = FhirContext.forR4().newJsonParser();
+    /**
+     * Parsers are not thread-safe, so each thread gets its own. The FHIR
+     * context is created when the first bundle is parsed, so a run that reads
+     * only cached projections never pays for it.
+     */
+    private static final ThreadLocal<IParser> JSON_PARSER = ThreadLocal.withInitial(() -> FhirContextHolder.FHIR_CONTEXT.newJsonParser());
 
     /**
-     * Maps Synethea ID to custom ID.
+     * Holds the FHIR context, which takes seconds to create, until it is
+     * first used.
      */
-    protected static final Map<String, String> syntheaToCustomPatientId = new HashMap<>();
-    protected static final Map<String, String> syntheaToCustomEncounterId = new HashMap<>();
-    protected static final Map<String, String> syntheaToCustomObservationId = new HashMap<>();
-    protected static final Map<String, String> syntheaToCustomMedicationAdministrationId = new HashMap<>();
-    protected static final Map<String, String> syntheaToCustomLocationId = new HashMap<>();
-
-    private static int patientIdCounter = 0;
-    private static int encounterIdCounter = 0;
-    private static int observationIdCounter = 0;
-    private static int medicationAdministrationIdCounter = 0;
-    private static int locationIdCounter = 0;
-
-    public AbstractSyntheaDataMapper() {
-    }
+    private static final class FhirContextHolder {
+
+        private static final FhirContext FHIR_CONTEXT = FhirContext.forR4();
 
-    protected static boolean hasCustomEncounterId(Observation observation) {
-        return syntheaToCustomEncounterId.containsKey(observation.getEncounter().getReference());
     }
 
-    protected static Bundle getBundle(Path file) throws IOException {
-        try (BufferedReader reader = Files.newBufferedReader(file, Charset.defaultCharset())) {
-            return (Bundle) JSON_PARSER.parseResource(reader);
-        }
+    protected final Path dataDir;
+    protected final Path outDir;
+    protected final Arguments arguments;
+    protected final int numOfThreads;
+
+    /**
+     * Maps Synthea IDs to custom IDs.
+     */
+    protected final IdMaps idMaps = new IdMaps();
+
+    /**
+     * @param dataDir directory of the Synthea bundle files
+     * @param outDir output directory
+     * @param arguments options of the job
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public AbstractSyntheaDataMapper(Path dataDir, Path outDir, Arguments arguments) {
+        this.dataDir = dataDir;
+        this.outDir = outDir;
+        this.arguments = arguments;
+        this.numOfThreads = getNumOfThreads(arguments);
     }
 
-    protected static String toLineHeader(String[] headers) {
-        return Arrays.stream(headers).collect(Collectors.joining("\t"));
+    /**
+     * Run the job.
+     *
+     * @throws IOException
+     */
+    public abstract void map() throws IOException;
+
+    /**
+     * @return the custom IDs assigned by the job
+     */
+    public IdMaps getIdMaps() {
+        return idMaps;
     }
 
-    protected static String getValue(String value, String defaultValue) {
-        return (value == null || value.isBlank()) ? defaultValue : value;
+    protected static Bundle getBundle(Path file) throws IOException {
+        return getBundle(file, null);
     }
 
-    protected static String getCustomEncounterId(MedicationAdministration medicationAdministration) {
-        String id = medicationAdministration.getContext().getReference();
-        if (!syntheaToCustomEncounterId.containsKey(id)) {
-            System.err.printf("No encounter %s found for the medication administration.%n", id);
+    /**
+     * Read a bundle file. An NDJSON file holds one resource per line; its
+     * resources, and the entries of any bundles among them, are collected into
+     * a single bundle. Lines of resource types that are not needed are
+     * skipped without being parsed. FHIR JSON is always UTF-8, whatever the
+     * default charset.
+     *
+     * @param file *.json or *.ndjson file
+     * @param resourceTypes FHIR types of the resources needed, or null for
+     * all
+     * @return the bundle
+     * @throws IOException
+     */
+    protected static Bundle getBundle(Path file, Set<String> resourceTypes) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return readBundle(reader, file.getFileName().toString().endsWith(".ndjson"), resourceTypes);
         }
-
-        return syntheaToCustomEncounterId.get(id);
     }
 
-    protected static String createCustomLocationId(IdType idType) {
-        String id = idType.getIdPart().replaceAll("urn:uuid:", "");
-        if (!syntheaToCustomLocationId.containsKey(id)) {
-            syntheaToCustomLocationId.put(id, String.format("location_%d", ++locationIdCounter));
+    /**
+     * Read a bundle, or the resources of an NDJSON stream collected into a
+     * bundle.
+     *
+     * @param reader JSON or NDJSON content
+     * @param ndjson true if the content is NDJSON
+     * @param resourceTypes FHIR types of the resources needed, or null for
+     * all
+     * @return the bundle
+     * @throws IOException
+     */
+    protected static Bundle readBundle(BufferedReader reader, boolean ndjson, Set<String> resourceTypes) throws IOException {
+        IParser parser = JSON_PARSER.get();
+        if (!ndjson) {
+            return (Bundle) parser.parseResource(reader);
         }
 
-        return syntheaToCustomLocationId.get(id);
-    }
-
-    protected static String getCustomLocationId(Encounter encounter) {
-        String id = encounter.getServiceProvider().getReferenceElement().getIdPart().replaceAll("synthea\\|", "");
-        if (!syntheaToCustomLocationId.containsKey(id)) {
-            syntheaToCustomLocationId.put(id, String.format("location_%d", ++locationIdCounter));
+        Bundle bundle = new Bundle();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || (resourceTypes != null && !isNeeded(line, resourceTypes))) {
+                continue;
+            }
+
+            Resource resource = (Resource) parser.parseResource(line);
+            if (resource instanceof Bundle lineBundle) {
+                lineBundle.getEntry().forEach(bundle::addEntry);
+            } else {
+                bundle.addEntry().setResource(resource);
+            }
         }
 
-        return syntheaToCustomLocationId.get(id);
+        return bundle;
     }
 
-    protected static String getCustomMedicationAdministrationId(MedicationAdministration medicationAdministration) {
-        String id = medicationAdministration.getIdElement().getIdPart();
-        if (!syntheaToCustomMedicationAdministrationId.containsKey(id)) {
-            syntheaToCustomMedicationAdministrationId.put(id, String.format("med_admin_%d", ++medicationAdministrationIdCounter));
-        }
-
-        return syntheaToCustomMedicationAdministrationId.get(id);
+    /**
+     * Create the FHIR context and the parser of the calling thread ahead of
+     * the first bundle.
+     */
+    protected static void warmUp() {
+        JSON_PARSER.get();
     }
 
-    protected static String getCustomObservationId(Observation observation) {
-        String id = observation.getIdElement().getIdPart();
-        if (!syntheaToCustomObservationId.containsKey(id)) {
-            syntheaToCustomObservationId.put(id, String.format("obs_%d", ++observationIdCounter));
+    /**
+     * Check the resource type of an NDJSON line, which is serialized before
+     * any contained resource. A line whose type cannot be found is parsed.
+     */
+    private static boolean isNeeded(String line, Set<String> resourceTypes) {
+        int index = line.indexOf("\"resourceType\"");
+        int start = (index < 0) ? -1 : line.indexOf('"', line.indexOf(':', index) + 1);
+        int end = (start < 0) ? -1 : line.indexOf('"', start + 1);
+        if (end < 0) {
+            return true;
         }
 
-        return syntheaToCustomObservationId.get(id);
+        String resourceType = line.substring(start + 1, end);
+
+        return resourceType.equals("Bundle") || resourceTypes.contains(resourceType);
     }
 
-    protected static String getCustomEncounterId(Observation observation) {
-        String id = observation.getEncounter().getReference();
-        if (!syntheaToCustomEncounterId.containsKey(id)) {
-            System.err.printf("No encounter %s found for the observation.%n", id);
+    /**
+     * Project a bundle file, from the cache if there is one.
+     *
+     * @param file bundle file
+     * @param mappingEngine engine projecting the bundle
+     * @param cache projection cache, or null
+     * @return rows with Synthea IDs
+     * @throws IOException
+     */
+    protected static BundleProjection project(Path file, MappingEngine mappingEngine, ProjectionCache cache) throws IOException {
+        if (cache == null) {
+            return mappingEngine.project(getBundle(file, mappingEngine.getResourceTypes()));
         }
 
-        return syntheaToCustomEncounterId.get(id);
+        return cache.get(file, bundleFile -> mappingEngine.project(getBundle(bundleFile, mappingEngine.getResourceTypes())));
     }
 
-    protected static String getCustomEncounterId(Encounter encounter) {
-        String id = encounter.getIdElement().getIdPart();
-        if (!syntheaToCustomEncounterId.containsKey(id)) {
-            syntheaToCustomEncounterId.put(id, String.format("enc_%d", ++encounterIdCounter));
+    /**
+     * Tables given by the --tables option, defaulting to all the tables of
+     * the mappings.
+     *
+     * @param arguments command-line options
+     * @param tableMappings table mappings
+     * @return tables to write
+     * @throws IllegalArgumentException if a table is not mapped
+     */
+    protected static Set<Table> getTables(Arguments arguments, List<TableMapping<?>> tableMappings) {
+        Set<Table> mappedTables = tableMappings.stream()
+                .map(TableMapping::getTable)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Table.class)));
+        if (!arguments.has("tables")) {
+            return mappedTables;
         }
 
-        return syntheaToCustomEncounterId.get(id);
-    }
-
-    protected static String getCustomPatientId(MedicationAdministration medicationAdministration) {
-        String id = medicationAdministration.getSubject().getReference();
-        if (!syntheaToCustomPatientId.containsKey(id)) {
-            System.err.printf("No patient %s found for the observation.%n", id);
+        Set<Table> tables = Table.fromNames(arguments.getString("tables", ""));
+        for (Table table : tables) {
+            if (!mappedTables.contains(table)) {
+                throw new IllegalArgumentException(String.format("Table %s is not produced by this mapper.", table.getName()));
+            }
         }
 
-        return syntheaToCustomPatientId.get(id);
+        return tables;
     }
 
-    protected static String getCustomPatientId(Observation observation) {
-        String id = observation.getSubject().getReference();
-        if (!syntheaToCustomPatientId.containsKey(id)) {
-            System.err.printf("No patient %s found for the observation.%n", id);
+    /**
+     * Number of worker threads given by the --threads option, defaulting to
+     * one.
+     *
+     * @param arguments command-line options
+     * @return number of threads
+     */
+    private static int getNumOfThreads(Arguments arguments) {
+        int numOfThreads = arguments.getInt("threads", 1);
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException("Option --threads must be at least 1.");
         }
 
-        return syntheaToCustomPatientId.get(id);
+        return numOfThreads;
     }
 
-    protected static String getCustomPatientId(Encounter encounter) {
-        String id = encounter.getSubject().getReference();
-        if (!syntheaToCustomPatientId.containsKey(id)) {
-            System.err.printf("No patient %s found for the encounter.%n", id);
+    /**
+     * Number of bundle entries above which a bundle is extracted in
+     * parallel, given by the --split-threshold option, defaulting to never.
+     *
+     * @param arguments command-line options
+     * @return split threshold, or 0 to extract every bundle on one thread
+     */
+    protected static int getSplitThreshold(Arguments arguments) {
+        int splitThreshold = arguments.getInt("split-threshold", MappingEngine.DEFAULT_SPLIT_THRESHOLD);
+        if (splitThreshold < 0) {
+            throw new IllegalArgumentException("Option --split-threshold must not be negative.");
         }
 
-        return syntheaToCustomPatientId.get(id);
+        return splitThreshold;
     }
 
-    protected static String getCustomPatientId(Patient patient) {
-        String id = patient.getIdElement().getIdPart();
-        if (!syntheaToCustomPatientId.containsKey(id)) {
-            syntheaToCustomPatientId.put(id, String.format("pat_%d", ++patientIdCounter));
-        }
+    /**
+     * Whether each quantity of an observation, including the quantity of
+     * each component, is mapped to its own row, given by the
+     * --observation-components option.
+     *
+     * @param arguments command-line options
+     * @return true to map the observation components
+     */
+    protected static boolean isObservationComponents(Arguments arguments) {
+        return arguments.getBoolean("observation-components", false);
+    }
 
-        return syntheaToCustomPatientId.get(id);
+    protected static String getValue(String value, String defaultValue) {
+        return (value == null || value.isBlank()) ? defaultValue : value;
     }
 
 }
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Skips the bundle files of patients outside the cohort by scanning the raw
+ * bytes of the file for resource types and the birth date, without parsing
+ * it. The file is streamed through a small buffer and read only until the
+ * decision is made. Only the JSON strings are looked at: a "resourceType" or "birthDate"
+ * key is recognized by the string that follows it after a colon, and the
+ * other strings are skipped as a whole, so their content is never mistaken
+ * for a key.
+ *
+ * Files without a patient are always accepted since they may hold the
+ * organizations shared by other files.
+ *
+ * Only *.json bundles, which hold one patient each, are filtered. An NDJSON
+ * file may hold many patients, as in a bulk export, and their resources may
+ * be in other files, so it is always accepted.
+ *
+ * Oct 19, 2026 12:44:19 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CohortPrefilter {
+
+    private static final byte[] RESOURCE_TYPE_KEY = "resourceType".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BIRTH_DATE_KEY = "birthDate".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PATIENT = "Patient".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Bytes kept of each string, more than the longest key or value looked
+     * at.
+     */
+    private static final int MAX_STRING_BYTES = 64;
+
+    private final byte[][] requiredResourceTypes;
+    private final String bornAfter;
+    private final String bornBefore;
+
+    /**
+     * @param requiredResourceTypes resource types a patient's file must
+     * contain, e.g. MedicationAdministration
+     * @param bornAfter patients must be born after this date, or null
+     * @param bornBefore patients must be born before this date, or null
+     */
+    public CohortPrefilter(List<String> requiredResourceTypes, LocalDate bornAfter, LocalDate bornBefore) {
+        this.requiredResourceTypes = new byte[requiredResourceTypes.size()][];
+        for (int i = 0; i < this.requiredResourceTypes.length; i++) {
+            this.requiredResourceTypes[i] = requiredResourceTypes.get(i).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        // ISO dates compare as strings
+        this.bornAfter = (bornAfter == null) ? null : bornAfter.toString();
+        this.bornBefore = (bornBefore == null) ? null : bornBefore.toString();
+    }
+
+    /**
+     * Create the prefilter requested on the command line:
+     * <pre>
+     * --require-resources=TYPES    comma-separated resource types a patient's file must contain
+     * --born-after=DATE            keep patients born after the date, e.g. 1950-01-01
+     * --born-before=DATE           keep patients born before the date
+     * </pre>
+     *
+     * @param arguments command-line arguments
+     * @return the prefilter, or null if no cohort is requested
+     * @throws IllegalArgumentException if a date is invalid
+     */
+    public static CohortPrefilter create(Arguments arguments) {
+        if (!arguments.has("require-resources") && !arguments.has("born-after") && !arguments.has("born-before")) {
+            return null;
+        }
+
+        List<String> resourceTypes = new ArrayList<>();
+        for (String resourceType : arguments.getString("require-resources", "").split(",")) {
+            if (!resourceType.isBlank()) {
+                resourceTypes.add(resourceType.trim());
+            }
+        }
+
+        return new CohortPrefilter(resourceTypes, getDate(arguments, "born-after"), getDate(arguments, "born-before"));
+    }
+
+    /**
+     * Read the file until the patient is known to be in or out of the
+     * cohort, which is usually within the first kilobytes since Synthea
+     * writes the patient first.
+     *
+     * @param file a bundle or NDJSON file
+     * @return false if the file is a bundle with a patient who cannot be in
+     * the cohort
+     * @throws IOException
+     */
+    public boolean accept(Path file) throws IOException {
+        if (!file.getFileName().toString().endsWith(".json")) {
+            return true;
+        }
+
+        try (InputStream in = Files.newInputStream(file)) {
+            return accept(in);
+        }
+    }
+
+    /**
+     * @param in content of a bundle, read until the decision is made
+     * @return false if the content has a patient who cannot be in the cohort
+     * @throws IOException
+     */
+    public boolean accept(InputStream in) throws IOException {
+        Scan scan = new Scan();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) >= 0) {
+            if (scan.feed(buffer, length)) {
+                break;
+            }
+        }
+
+        return scan.isAccepted();
+    }
+
+    /**
+     * @param bytes content of a bundle
+     * @param length number of bytes of the content
+     * @return false if the content has a patient who cannot be in the cohort
+     */
+    public boolean accept(byte[] bytes, int length) {
+        Scan scan = new Scan();
+        scan.feed(bytes, length);
+
+        return scan.isAccepted();
+    }
+
+    private boolean isInRange(String birthDate) {
+        return (bornAfter == null || birthDate.compareTo(bornAfter) > 0)
+                && (bornBefore == null || birthDate.compareTo(bornBefore) < 0);
+    }
+
+    /**
+     * The state of the scan of one file, fed a buffer at a time, so strings
+     * and keys may span buffers. Only the first bytes of each string are
+     * kept, enough to recognize the keys and their values.
+     */
+    private class Scan {
+
+        private final boolean[] found = new boolean[requiredResourceTypes.length];
+        private final boolean needsBirthDate = bornAfter != null || bornBefore != null;
+        private final byte[] string = new byte[MAX_STRING_BYTES];
+
+        private boolean hasPatient;
+        private String birthDate;
+        private int numOfFound;
+        private Boolean decision;
+
+        private boolean inString;
+        private boolean escaped;
+        private int stringLength;
+
+        // key whose value is expected next, and whether its colon was seen
+        private byte[] key;
+        private boolean afterColon;
+        private boolean inValue;
+
+        /**
+         * @return true if the decision is made and the rest of the content is
+         * not needed
+         */
+        boolean feed(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inString = false;
+                        endString();
+                        if (decision != null) {
+                            return true;
+                        }
+                        continue;
+                    }
+                    if (stringLength < string.length) {
+                        string[stringLength] = b;
+                    }
+                    stringLength++;
+                } else if (b == '"') {
+                    inValue = key != null && afterColon;
+                    if (!inValue) {
+                        key = null;
+                    }
+                    inString = true;
+                    stringLength = 0;
+                } else if (b == ':' && key != null && !afterColon) {
+                    afterColon = true;
+                } else if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    key = null;
+                }
+            }
+
+            return false;
+        }
+
+        boolean isAccepted() {
+            // a patient without a birth date cannot be shown to be in range
+            return (decision == null) ? !hasPatient : decision;
+        }
+
+        private void endString() {
+            if (!inValue) {
+                if (isString(RESOURCE_TYPE_KEY) || (birthDate == null && isString(BIRTH_DATE_KEY))) {
+                    key = isString(RESOURCE_TYPE_KEY) ? RESOURCE_TYPE_KEY : BIRTH_DATE_KEY;
+                    afterColon = false;
+                }
+                return;
+            }
+
+            if (key == RESOURCE_TYPE_KEY) {
+                if (isString(PATIENT)) {
+                    hasPatient = true;
+                }
+                for (int j = 0; j < found.length; j++) {
+                    if (!found[j] && isString(requiredResourceTypes[j])) {
+                        found[j] = true;
+                        numOfFound++;
+                    }
+                }
+            } else {
+                birthDate = new String(string, 0, Math.min(stringLength, string.length), StandardCharsets.US_ASCII);
+                if (!isInRange(birthDate)) {
+                    decision = false;
+                    return;
+                }
+            }
+            key = null;
+            inValue = false;
+
+            if (hasPatient && numOfFound == found.length && (!needsBirthDate || birthDate != null)) {
+                decision = true;
+            }
+        }
+
+        private boolean isString(byte[] value) {
+            return stringLength == value.length && Arrays.equals(string, 0, stringLength, value, 0, value.length);
+        }
+
+    }
+
+    private static LocalDate getDate(Arguments arguments, String name) {
+        if (!arguments.has(name)) {
+            return null;
+        }
+
+        try {
+            return LocalDate.parse(arguments.getString(name, null));
+        } catch (DateTimeParseException exception) {
+            throw new IllegalArgumentException(String.format("Option --%s must be a date such as 1950-01-01.", name));
+        }
+    }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.MedicationAdministration;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * A summary of each bundle file of a Synthea data directory, used to decide
+ * which files have to be parsed.
+ *
+ * Oct 18, 2026 4:05:27 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CorpusIndex {
+
+    private static final String[] HEADERS = {
+        "file",
+        "size",
+        "last_modified",
+        "sha256",
+        "patient_id",
+        "encounters",
+        "observations",
+        "medication_administrations",
+        "organizations",
+        "self_contained",
+        "organization_ids",
+        "service_provider_ids",
+        "medication_encounter_ids"
+    };
+
+    private final Path dataDir;
+    private final Map<Path, Entry> entries = new LinkedHashMap<>();
+
+    public CorpusIndex(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * Summary of a bundle file.
+     *
+     * @param file relative path of the file in the data directory
+     * @param size file size in bytes
+     * @param lastModified last modified time in milliseconds
+     * @param hash SHA-256 hash of the file content
+     * @param patientId Synthea ID of the patient, or null if there is none
+     * @param numOfEncounters number of encounters
+     * @param numOfObservations number of observations
+     * @param numOfMedicationAdministrations number of medication
+     * administrations
+     * @param numOfOrganizations number of organizations
+     * @param selfContained true if all encounters, observations and
+     * medication administrations belong to the patient of the bundle
+     * @param organizationIds Synthea IDs of the organizations, which are
+     * mapped to locations
+     * @param serviceProviderIds Synthea IDs of the organizations providing
+     * the encounters
+     * @param medicationEncounterIds Synthea IDs of the encounters with
+     * medication administrations
+     */
+    public record Entry(Path file, long size, long lastModified, String hash, String patientId,
+            int numOfEncounters, int numOfObservations, int numOfMedicationAdministrations, int numOfOrganizations,
+            boolean selfContained, Set<String> organizationIds, Set<String> serviceProviderIds, Set<String> medicationEncounterIds) {
+
+        public boolean hasPatient() {
+            return patientId != null;
+        }
+
+    }
+
+    /**
+     * Summarize a bundle.
+     *
+     * @param dataDir data directory
+     * @param file bundle file
+     * @param hash SHA-256 hash of the file content
+     * @param bundle parsed bundle
+     * @return the summary
+     * @throws IOException
+     */
+    public static Entry summarize(Path dataDir, Path file, String hash, Bundle bundle) throws IOException {
+        String patientId = null;
+        Set<String> subjectIds = new HashSet<>();
+        Set<String> organizationIds = new TreeSet<>();
+        Set<String> serviceProviderIds = new TreeSet<>();
+        Set<String> medicationEncounterIds = new TreeSet<>();
+        int numOfEncounters = 0;
+        int numOfObservations = 0;
+        int numOfMedicationAdministrations = 0;
+        int numOfOrganizations = 0;
+        for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+            Resource resource = entry.getResource();
+            switch (resource.fhirType()) {
+                case "Patient" ->
+                    patientId = resource.getIdElement().getIdPart();
+                case "Encounter" -> {
+                    Encounter encounter = (Encounter) resource;
+                    numOfEncounters++;
+                    subjectIds.add(encounter.getSubject().getReference());
+                    if (encounter.hasServiceProvider()) {
+                        serviceProviderIds.add(SyntheaMappings.getServiceProviderId(encounter));
+                    }
+                }
+                case "Observation" -> {
+                    numOfObservations++;
+                    subjectIds.add(((Observation) resource).getSubject().getReference());
+                }
+                case "MedicationAdministration" -> {
+                    MedicationAdministration medicationAdministration = (MedicationAdministration) resource;
+                    numOfMedicationAdministrations++;
+                    subjectIds.add(medicationAdministration.getSubject().getReference());
+                    medicationEncounterIds.add(medicationAdministration.getContext().getReference());
+                }
+                case "Organization" -> {
+                    numOfOrganizations++;
+                    organizationIds.add(SyntheaMappings.getOrganizationId((Organization) resource));
+                }
+                default -> {
+                }
+            }
+        }
+        boolean selfContained = subjectIds.isEmpty() || (subjectIds.size() == 1 && subjectIds.contains(patientId));
+
+        return new Entry(dataDir.relativize(file), Files.size(file), Files.getLastModifiedTime(file).toMillis(), hash, patientId,
+                numOfEncounters, numOfObservations, numOfMedicationAdministrations, numOfOrganizations,
+                selfContained, organizationIds, serviceProviderIds, medicationEncounterIds);
+    }
+
+    public void add(Entry entry) {
+        entries.put(entry.file(), entry);
+    }
+
+    /**
+     * Get the summary of a file if it is still current, i.e. the file size
+     * and last modified time have not changed since it was indexed. The
+     * content hash is not checked, so this is cheap enough to call while
+     * scanning.
+     *
+     * @param file bundle file in the data directory
+     * @return the summary, or null if the file is not indexed or has changed
+     * @throws IOException
+     */
+    public Entry getCurrent(Path file) throws IOException {
+        Entry entry = entries.get(dataDir.relativize(file));
+        if (entry == null
+                || entry.size() != Files.size(file)
+                || entry.lastModified() != Files.getLastModifiedTime(file).toMillis()) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Get the summary of a file if its content has not changed since it was
+     * indexed. Unlike {@link #getCurrent(Path)}, a file that was touched or
+     * copied is still recognized, by its content hash.
+     *
+     * @param file bundle file in the data directory
+     * @param hash SHA-256 hash of the current file content
+     * @return the summary with the current file size and last modified time,
+     * or null if the file is not indexed or its content has changed
+     * @throws IOException
+     */
+    public Entry getUnchanged(Path file, String hash) throws IOException {
+        Entry entry = entries.get(dataDir.relativize(file));
+        if (entry == null || !entry.hash().equals(hash)) {
+            return null;
+        }
+
+        return new Entry(entry.file(), Files.size(file), Files.getLastModifiedTime(file).toMillis(), hash, entry.patientId(),
+                entry.numOfEncounters(), entry.numOfObservations(), entry.numOfMedicationAdministrations(), entry.numOfOrganizations(),
+                entry.selfContained(), entry.organizationIds(), entry.serviceProviderIds(), entry.medicationEncounterIds());
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Read an index written by {@link #write(Path)}.
+     *
+     * @param indexFile index file
+     * @param dataDir data directory the index was made from
+     * @return the index
+     * @throws IOException
+     */
+    public static CorpusIndex read(Path indexFile, Path dataDir) throws IOException {
+        CorpusIndex index = new CorpusIndex(dataDir);
+        try (BufferedReader reader = Files.newBufferedReader(indexFile)) {
+            String line = reader.readLine();
+            if (line == null || !line.equals(String.join("\t", HEADERS))) {
+                throw new IOException(String.format("%s is not a corpus index.", indexFile));
+            }
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != HEADERS.length) {
+                    throw new IOException(String.format("Invalid corpus index line in %s: %s", indexFile, line));
+                }
+
+                try {
+                    index.add(new Entry(
+                            Path.of(fields[0]),
+                            Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2]),
+                            fields[3],
+                            fields[4].isEmpty() ? null : fields[4],
+                            Integer.parseInt(fields[5]),
+                            Integer.parseInt(fields[6]),
+                            Integer.parseInt(fields[7]),
+                            Integer.parseInt(fields[8]),
+                            Boolean.parseBoolean(fields[9]),
+                            parseIds(fields[10]),
+                            parseIds(fields[11]),
+                            parseIds(fields[12])));
+                } catch (NumberFormatException exception) {
+                    throw new IOException(String.format("Invalid corpus index line in %s: %s", indexFile, line), exception);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private static Set<String> parseIds(String field) {
+        return field.isEmpty() ? Set.of() : new HashSet<>(Arrays.asList(field.split(",")));
+    }
+
+    /**
+     * Write the index as a tab-separated file.
+     *
+     * @param indexFile index file
+     * @throws IOException
+     */
+    public void write(Path indexFile) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(indexFile))) {
+            writer.println(String.join("\t", HEADERS));
+            for (Entry entry : entries.values()) {
+                writer.printf("%s\t%d\t%d\t%s\t%s\t%d\t%d\t%d\t%d\t%b\t%s\t%s\t%s%n",
+                        entry.file(),
+                        entry.size(),
+                        entry.lastModified(),
+                        entry.hash(),
+                        (entry.patientId() == null) ? "" : entry.patientId(),
+                        entry.numOfEncounters(),
+                        entry.numOfObservations(),
+                        entry.numOfMedicationAdministrations(),
+                        entry.numOfOrganizations(),
+                        entry.selfContained(),
+                        String.join(",", entry.organizationIds()),
+                        String.join(",", entry.serviceProviderIds()),
+                        String.join(",", entry.medicationEncounterIds()));
+            }
+            if (writer.checkError()) {
+                throw new IOException(String.format("Unable to write %s.", indexFile));
+            }
+        }
+    }
+
+    /**
+     * Index the bundle files of a data directory, reusing the summaries of an
+     * existing index for files that have not changed. A file whose size or
+     * last modified time has changed is hashed, and only parsed again if its
+     * content has changed too.
+     */
+    static CorpusIndex index(Path dataDir, Iterable<Path> files, CorpusIndex existingIndex) throws IOException {
+        CorpusIndex index = new CorpusIndex(dataDir);
+        for (Path file : files) {
+            Entry entry = (existingIndex == null) ? null : existingIndex.getCurrent(file);
+            if (entry == null) {
+                String hash = FileUtils.hash(file);
+                entry = (existingIndex == null) ? null : existingIndex.getUnchanged(file, hash);
+                if (entry == null) {
+                    entry = summarize(dataDir, file, hash, AbstractSyntheaDataMapper.getBundle(file));
+                }
+            }
+            index.add(entry);
+        }
+
+        return index;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Index the bundle files of a Synthea data directory. Files that are already
+ * in an existing index and have not changed are not parsed again.
+ *
+ * Oct 18, 2026 4:31:50 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class IndexSynthea {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Path dataDir = Paths.get(args[0]);
+        Path indexFile = Paths.get(args[1]);
+        System.out.println("================================================================================");
+        System.out.println("Index Synthea Data");
+        System.out.println("--------------------------------------------------------------------------------");
+        System.out.printf("Data Directory: %s%n", dataDir.toString());
+        System.out.printf("Index File: %s%n", indexFile.toString());
+        System.out.println();
+        try {
+            CorpusIndex existingIndex = Files.exists(indexFile) ? CorpusIndex.read(indexFile, dataDir) : null;
+            CorpusIndex index = CorpusIndex.index(dataDir, FileUtils.listBundleFiles(dataDir), existingIndex);
+            index.write(indexFile);
+            System.out.printf("Files: %d%n", index.getEntries().size());
+        } catch (IOException exception) {
+            exception.printStackTrace(System.err);
+        }
+        System.out.println("================================================================================");
+    }
+
+}
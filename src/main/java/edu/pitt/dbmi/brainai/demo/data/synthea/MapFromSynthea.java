@@ -18,31 +18,24 @@
  */
 package edu.pitt.dbmi.brainai.demo.data.synthea;
 
-import edu.pitt.dbmi.brainai.demo.data.FileHeaders;
-import static edu.pitt.dbmi.brainai.demo.data.synthea.AbstractSyntheaDataMapper.getCustomEncounterId;
-import static edu.pitt.dbmi.brainai.demo.data.synthea.AbstractSyntheaDataMapper.getCustomMedicationAdministrationId;
-import static edu.pitt.dbmi.brainai.demo.data.synthea.AbstractSyntheaDataMapper.getCustomPatientId;
-import edu.pitt.dbmi.brainai.demo.data.utils.DateFormats;
+import edu.pitt.dbmi.brainai.demo.data.mapping.DeltaFilter;
+import edu.pitt.dbmi.brainai.demo.data.mapping.MappingEngine;
+import edu.pitt.dbmi.brainai.demo.data.mapping.ProjectionCache;
+import edu.pitt.dbmi.brainai.demo.data.mapping.TableMapping;
+import edu.pitt.dbmi.brainai.demo.data.output.CountingOutputSink;
+import edu.pitt.dbmi.brainai.demo.data.output.OutputSink;
+import edu.pitt.dbmi.brainai.demo.data.output.OutputSinks;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriters;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import edu.pitt.dbmi.brainai.demo.data.utils.FileScanner;
 import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import edu.pitt.dbmi.brainai.demo.data.utils.ParallelFileProcessor;
+import edu.pitt.dbmi.brainai.demo.data.utils.ProgressReporter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
-import org.hl7.fhir.r4.model.Address;
-import org.hl7.fhir.r4.model.Bundle;
-import org.hl7.fhir.r4.model.Coding;
-import org.hl7.fhir.r4.model.Encounter;
-import org.hl7.fhir.r4.model.Location;
-import org.hl7.fhir.r4.model.MedicationAdministration;
-import org.hl7.fhir.r4.model.Observation;
-import org.hl7.fhir.r4.model.Organization;
-import org.hl7.fhir.r4.model.Patient;
-import org.hl7.fhir.r4.model.Quantity;
-import org.hl7.fhir.r4.model.Type;
+import java.util.Set;
 
 /**
  * Map Synthea data to custom Cerner data for the Brain AI project.
@@ -53,12 +46,39 @@ import org.hl7.fhir.r4.model.Type;
  */
 public class MapFromSynthea extends AbstractSyntheaDataMapper {
 
+    private final MappingEngine mappingEngine;
+    private final ProjectionCache cache;
+
+    /**
+     * Options, in addition to the output and delta options:
+     * <pre>
+     * --threads=N          number of threads parsing the bundle files
+     * --parse-cache=DIR    cache parsed bundles in the directory
+     * --tables=NAMES       comma-separated tables to write, e.g. patients,observations
+     * --split-threshold=N  bundle entries above which a bundle is extracted in parallel (default 0, never)
+     * --observation-components=true|false  a row for each quantity of an observation, including its components (default false)
+     * </pre>
+     * and the progress options of {@link ProgressReporter}.
+     *
+     * @param dataDir directory of the Synthea bundle files
+     * @param outDir output directory
+     * @param arguments options of the job
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public MapFromSynthea(Path dataDir, Path outDir, Arguments arguments) {
+        super(dataDir, outDir, arguments);
+        List<TableMapping<?>> tableMappings = isObservationComponents(arguments) ? SyntheaMappings.FULL_WITH_COMPONENTS : SyntheaMappings.FULL;
+        this.mappingEngine = new MappingEngine(tableMappings, getTables(arguments, tableMappings), Set.of(), getSplitThreshold(arguments));
+        this.cache = ProjectionCache.create(arguments, isObservationComponents(arguments) ? "full-components" : "full", SyntheaMappings.VERSION, mappingEngine);
+    }
+
     /**
      * @param args the command line arguments
      */
     public static void main(String[] args) {
         Path dataDir = Paths.get(args[0]);
         Path outDir = Paths.get(args[1]);
+        Arguments arguments = Arguments.parse(args, 2);
         System.out.println("================================================================================");
         System.out.println("Map From Synthea Data");
         System.out.println("--------------------------------------------------------------------------------");
@@ -66,177 +86,57 @@ public class MapFromSynthea extends AbstractSyntheaDataMapper {
         System.out.printf("Output Directory: %s%n", outDir.toString());
         System.out.println();
         try {
-            map(dataDir, outDir);
+            (new MapFromSynthea(dataDir, outDir, arguments)).map();
         } catch (IOException exception) {
             exception.printStackTrace(System.err);
         }
         System.out.println("================================================================================");
     }
 
-    private static void map(Path dataDir, Path outDir) throws IOException {
-        String dirOut = outDir.toString();
-        try (PrintWriter patientWriter = new PrintWriter(Files.newOutputStream(Paths.get(dirOut, "patients.tsv")));
-                PrintWriter encounterWriter = new PrintWriter(Files.newOutputStream(Paths.get(dirOut, "encounters.tsv")));
-                PrintWriter observationWriter = new PrintWriter(Files.newOutputStream(Paths.get(dirOut, "observations.tsv")));
-                PrintWriter medicationAdministrationWriter = new PrintWriter(Files.newOutputStream(Paths.get(dirOut, "medication_administrations.tsv")));
-                PrintWriter locationWriter = new PrintWriter(Files.newOutputStream(Paths.get(dirOut, "locations.tsv")))) {
-            // write out headers
-            patientWriter.println(toLineHeader(FileHeaders.PATIENT));
-            encounterWriter.println(toLineHeader(FileHeaders.ENCOUNTER));
-            observationWriter.println(toLineHeader(FileHeaders.OBSERVATION));
-            medicationAdministrationWriter.println(toLineHeader(FileHeaders.MEDICATION_ADMINISTRATION));
-            locationWriter.println(toLineHeader(FileHeaders.LOCATION));
-
-            // write out data
-            for (Path file : FileUtils.listFiles(dataDir)) {
-                Bundle bundle = getBundle(file);
-                extractPatient(bundle, patientWriter);
-                extractEncounter(bundle, encounterWriter);
-                extractObservation(bundle, observationWriter);
-                extractMedicationAdministration(bundle, medicationAdministrationWriter);
-                createLocation(bundle, locationWriter);
-            }
+    /**
+     * Parse and project the bundles on the worker threads, largest files
+     * first, and write them out on this thread, which assigns the custom IDs.
+     * With a single thread, the files are mapped in scan order.
+     */
+    @Override
+    public void map() throws IOException {
+        DeltaFilter deltaFilter = DeltaFilter.create(arguments);
+        if (deltaFilter != null) {
+            deltaFilter.loadIds(idMaps);
         }
-    }
-
-    private static void createLocation(Bundle bundle, PrintWriter writer) {
-        List<Organization> organizations = bundle.getEntry().stream()
-                .filter(e -> e.getResource().fhirType().equals("Organization"))
-                .map(e -> (Organization) e.getResource()).collect(Collectors.toList());
-
-        int count = 0;
-        int limit = 3;
-        List<String> data = new LinkedList<>();
-        for (Organization organization : organizations) {
-            data.add(createCustomLocationId(organization.getIdElement()));
-            data.add(organization.getName());
 
-            Address address = organization.getAddressFirstRep();
-            data.add(address.getText());
-            data.add(address.getCity());
-            data.add(address.getState());
-            data.add(address.getPostalCode());
-            data.add(Location.LocationStatus.ACTIVE.toString());
+        try (ProgressReporter progressReporter = ProgressReporter.create(outDir, arguments);
+                OutputSink outputSink = new CountingOutputSink(OutputSinks.create(outDir, arguments), progressReporter);
+                TableWriters writers = TableWriters.open(outputSink, mappingEngine.getTables());
+                FileScanner scanner = FileUtils.scanBundleFiles(dataDir, numOfThreads > 1, null)) {
+            progressReporter.track(scanner);
 
-            switch (count % limit) {
-                case 0 -> {
-                    data.add("INLAB");
-                    data.add("inpatient laboratory");
-                    data.add("A location that plays the role of delivering services which may include tests are done on clinical specimens to get health information about a patient pertaining to the diagnosis, treatment, and prevention of disease for a hospital visit longer than one day.");
-                }
-                case 1 -> {
-                    data.add("PEDICU");
-                    data.add("Pediatric intensive care unit");
-                    data.add("");
-                }
-                default -> {
-                    data.add("ICU");
-                    data.add("Intensive care unit");
-                    data.add("");
-                }
-            }
-
-            writer.println(data.stream().collect(Collectors.joining("\t")));
-            data.clear();
-            count++;
+            // write out data
+            ParallelFileProcessor.run(scanner, numOfThreads,
+                    file -> project(file.file(), mappingEngine, cache),
+                    (file, projection) -> {
+                        if (deltaFilter != null) {
+                            projection = deltaFilter.filter(projection);
+                        }
+                        mappingEngine.write(projection, idMaps, writers);
+                        progressReporter.fileDone(file.size());
+                    });
         }
-    }
 
-    private static void extractMedicationAdministration(Bundle bundle, PrintWriter writer) {
-        List<String> data = new LinkedList<>();
-        bundle.getEntry().stream()
-                .filter(e -> e.getResource().fhirType().equals("MedicationAdministration"))
-                .map(e -> (MedicationAdministration) e.getResource())
-                .forEach(medicationAdministration -> {
-                    data.clear();
-                    data.add(getCustomMedicationAdministrationId(medicationAdministration));
-                    data.add(medicationAdministration.getStatus().getDisplay());
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(medicationAdministration.getEffectiveDateTimeType().getValue()));
-                    data.add(getCustomPatientId(medicationAdministration));
-                    data.add(getCustomEncounterId(medicationAdministration));
-
-                    Coding medicationCoding = medicationAdministration.getMedicationCodeableConcept().getCodingFirstRep();
-                    data.add(medicationCoding.getCode());
-                    data.add(medicationCoding.getSystem());
-                    data.add(medicationCoding.getDisplay());
-
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    data.clear();
-                });
-    }
-
-    private static void extractObservation(Bundle bundle, PrintWriter writer) {
-        List<String> data = new LinkedList<>();
-        bundle.getEntry().stream()
-                .filter(e -> e.getResource().fhirType().equals("Observation"))
-                .map(e -> (Observation) e.getResource())
-                .forEach(observation -> {
-                    data.clear();
-                    data.add(getCustomObservationId(observation));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(observation.getEffectiveDateTimeType().getValue()));
-                    data.add(getCustomPatientId(observation));
-                    data.add(getCustomEncounterId(observation));
-                    data.add(observation.getCode().getCodingFirstRep().getCode());
-                    data.add(observation.getCode().getCodingFirstRep().getDisplay());
-
-                    Type type = observation.getValue();
-                    if (type == null || !(type instanceof Quantity)) {
-                        data.add("");
-                        data.add("");
-                        data.add("");
-                    } else {
-                        data.add(observation.getValueQuantity().getValue().toString());
-                        data.add(observation.getValueQuantity().getUnit());
-                        data.add("numeric");
-                    }
-                    data.add("laboratory");
-
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    data.clear();
-                });
-    }
-
-    private static void extractEncounter(Bundle bundle, PrintWriter writer) {
-        List<String> data = new LinkedList<>();
-        bundle.getEntry().stream()
-                .filter(e -> e.getResource().fhirType().equals("Encounter"))
-                .map(e -> (Encounter) e.getResource())
-                .forEach(encounter -> {
-                    data.clear();
-                    data.add(getCustomEncounterId(encounter));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(encounter.getPeriod().getStart()));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(encounter.getPeriod().getEnd()));
-                    data.add(getCustomPatientId(encounter));
-                    data.add("394656005");
-                    data.add("Inpatient");
-                    data.add("126598008");
-                    data.add("Neoplasm of connective tissues disorder");
-
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    data.clear();
-                });
+        if (deltaFilter != null) {
+            deltaFilter.save(idMaps);
+        }
+        if (cache != null) {
+            System.out.printf("Parse cache hits: %d, misses: %d%n", cache.getNumOfHits(), cache.getNumOfMisses());
+        }
     }
 
-    private static void extractPatient(Bundle bundle, PrintWriter writer) {
-        List<String> data = new LinkedList<>();
-        bundle.getEntry().stream()
-                .filter(e -> e.getResource().fhirType().equals("Patient"))
-                .map(e -> (Patient) e.getResource())
-                .forEach(patient -> {
-                    data.clear();
-                    data.add(getCustomPatientId(patient));
-                    data.add(DateFormats.MM_DD_YYYY.format(patient.getBirthDate()));
-                    data.add(patient.getNameFirstRep().getFamily());
-                    data.add(patient.getNameFirstRep().getGiven().get(0).getValueAsString());
-                    data.add(getValue(patient.getGender().toCode(), "female"));
-                    data.add(getValue(patient.getAddressFirstRep().getText(), "4200 Fifth Ave"));
-                    data.add(getValue(patient.getAddressFirstRep().getCity(), "Pittsburgh"));
-                    data.add(getValue(patient.getAddressFirstRep().getState(), "Pennsylvania"));
-                    data.add(getValue(patient.getAddressFirstRep().getPostalCode(), "15260"));
-
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    data.clear();
-                });
+    /**
+     * @return the parse cache of the job, or null if the --parse-cache
+     * option is not given
+     */
+    public ProjectionCache getParseCache() {
+        return cache;
     }
 
 }
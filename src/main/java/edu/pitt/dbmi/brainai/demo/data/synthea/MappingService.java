@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.mapping.IdMaps;
+import edu.pitt.dbmi.brainai.demo.data.mapping.MappingEngine;
+import edu.pitt.dbmi.brainai.demo.data.mapping.TableMapping;
+import edu.pitt.dbmi.brainai.demo.data.output.OutputSink;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriter;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriters;
+import edu.pitt.dbmi.brainai.demo.data.output.TsvTableWriter;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.hl7.fhir.r4.model.Bundle;
+
+/**
+ * Maps bundles posted over HTTP and streams back the TSV rows of one table,
+ * from a JVM whose FHIR context is already initialized.
+ *
+ * <pre>
+ * POST /map?table=observations[&amp;mapping=full|reduced][&amp;format=json|ndjson]
+ * </pre>
+ *
+ * The body is a Synthea bundle, or an NDJSON stream of resources if the
+ * format is ndjson or the content type is application/fhir+ndjson. The rows
+ * are mapped as by {@link MapFromSynthea} (full, the default) or with the
+ * mappings of {@link ReducedMapFromSynthea} (reduced) without its limits.
+ * Each request gets its own custom IDs, so requests can run concurrently.
+ *
+ * Oct 18, 2026 9:17:26 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class MappingService implements Closeable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param address address to listen on; port 0 picks a free port
+     * @param numOfThreads number of requests handled at the same time
+     * @throws IOException if the address cannot be bound
+     */
+    public MappingService(InetSocketAddress address, int numOfThreads) throws IOException {
+        this.executor = Executors.newFixedThreadPool(numOfThreads);
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/map", this::handleMap);
+        this.server.createContext("/health", exchange -> sendText(exchange, 200, "ok"));
+    }
+
+    /**
+     * Optional arguments:
+     * <pre>
+     * --host=HOST          address to listen on (default 127.0.0.1)
+     * --threads=N          number of requests handled at the same time (default 4)
+     * </pre>
+     *
+     * @param args the command line arguments: port, then the options
+     */
+    public static void main(String[] args) {
+        int port = Integer.parseInt(args[0]);
+        Arguments arguments = Arguments.parse(args, 1);
+        String host = arguments.getString("host", "127.0.0.1");
+        System.out.println("================================================================================");
+        System.out.println("Synthea Mapping Service");
+        System.out.println("--------------------------------------------------------------------------------");
+        try {
+            MappingService service = new MappingService(new InetSocketAddress(host, port), arguments.getInt("threads", 4));
+            AbstractSyntheaDataMapper.warmUp();
+            service.start();
+            System.out.printf("Listening on http://%s:%d/map%n", host, service.getPort());
+            Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+        } catch (IOException exception) {
+            exception.printStackTrace(System.err);
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleMap(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "Use POST.");
+                return;
+            }
+
+            MappingEngine mappingEngine;
+            boolean ndjson;
+            try {
+                Map<String, String> parameters = getParameters(exchange.getRequestURI().getRawQuery());
+                Table table = Table.fromName(parameters.getOrDefault("table", ""));
+                List<TableMapping<?>> tableMappings = switch (parameters.getOrDefault("mapping", "full")) {
+                    case "full" ->
+                        SyntheaMappings.FULL;
+                    case "reduced" ->
+                        SyntheaMappings.REDUCED;
+                    case "full-components" ->
+                        SyntheaMappings.FULL_WITH_COMPONENTS;
+                    case "reduced-components" ->
+                        SyntheaMappings.REDUCED_WITH_COMPONENTS;
+                    default ->
+                        throw new IllegalArgumentException(String.format("Unknown mapping %s.", parameters.get("mapping")));
+                };
+                if (tableMappings.stream().noneMatch(tableMapping -> tableMapping.getTable() == table)) {
+                    throw new IllegalArgumentException(String.format("Table %s is not produced by this mapping.", table.getName()));
+                }
+                String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                ndjson = "ndjson".equals(parameters.get("format"))
+                        || (contentType != null && contentType.contains("ndjson"));
+                mappingEngine = new MappingEngine(tableMappings, Set.of(table), Set.of());
+            } catch (IllegalArgumentException exception) {
+                sendText(exchange, 400, exception.getMessage());
+                return;
+            }
+
+            Bundle bundle;
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                bundle = AbstractSyntheaDataMapper.readBundle(reader, ndjson, mappingEngine.getResourceTypes());
+            } catch (RuntimeException exception) {
+                sendText(exchange, 400, String.format("Unable to parse the body: %s", exception.getMessage()));
+                return;
+            }
+
+            // stream the rows as they are written
+            exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+            try (TableWriters writers = TableWriters.open(new ResponseSink(writer), mappingEngine.getTables())) {
+                mappingEngine.write(mappingEngine.project(bundle), new IdMaps(), writers);
+            }
+        } catch (IOException | RuntimeException exception) {
+            exception.printStackTrace(System.err);
+        }
+    }
+
+    private static Map<String, String> getParameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int index = parameter.indexOf('=');
+                if (index > 0) {
+                    parameters.put(
+                            URLDecoder.decode(parameter.substring(0, index), StandardCharsets.UTF_8),
+                            URLDecoder.decode(parameter.substring(index + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        return parameters;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Writes the single requested table to the response.
+     */
+    private static final class ResponseSink implements OutputSink {
+
+        private final PrintWriter writer;
+
+        private ResponseSink(PrintWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public TableWriter open(Table table) {
+            return new TsvTableWriter(writer, table);
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+
+    }
+
+}
@@ -18,34 +18,40 @@
  */
 package edu.pitt.dbmi.brainai.demo.data.synthea;
 
-import edu.pitt.dbmi.brainai.demo.data.FileHeaders;
-import edu.pitt.dbmi.brainai.demo.data.utils.DateFormats;
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.mapping.BundleProjection;
+import edu.pitt.dbmi.brainai.demo.data.mapping.DeltaFilter;
+import edu.pitt.dbmi.brainai.demo.data.mapping.MappingEngine;
+import edu.pitt.dbmi.brainai.demo.data.mapping.ProjectionCache;
+import edu.pitt.dbmi.brainai.demo.data.mapping.TableMapping;
+import edu.pitt.dbmi.brainai.demo.data.output.CountingOutputSink;
+import edu.pitt.dbmi.brainai.demo.data.output.OutputSink;
+import edu.pitt.dbmi.brainai.demo.data.output.OutputSinks;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriters;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import edu.pitt.dbmi.brainai.demo.data.utils.FileScanner;
 import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import edu.pitt.dbmi.brainai.demo.data.utils.ParallelFileProcessor;
+import edu.pitt.dbmi.brainai.demo.data.utils.ProgressReporter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import org.hl7.fhir.r4.model.Address;
-import org.hl7.fhir.r4.model.Bundle;
-import org.hl7.fhir.r4.model.CodeableConcept;
-import org.hl7.fhir.r4.model.Coding;
-import org.hl7.fhir.r4.model.Encounter;
-import org.hl7.fhir.r4.model.Location;
-import org.hl7.fhir.r4.model.MedicationAdministration;
-import org.hl7.fhir.r4.model.Observation;
-import org.hl7.fhir.r4.model.Organization;
-import org.hl7.fhir.r4.model.Patient;
-import org.hl7.fhir.r4.model.Quantity;
-import org.hl7.fhir.r4.model.Type;
+import java.util.stream.IntStream;
 
 /**
  * Map a certain amount of Synthea data to custom Cerner data for the Brain AI
@@ -57,17 +63,91 @@ import org.hl7.fhir.r4.model.Type;
  */
 public class ReducedMapFromSynthea extends AbstractSyntheaDataMapper {
 
-    private static final int MAX_NUM_PATIENTS = Integer.MAX_VALUE;
-    private static final int MAX_NUM_ENCOUNTERS = Integer.MAX_VALUE;
-    private static final int MAX_NUM_OBSERVATIONS = Integer.MAX_VALUE;
-    private static final int MAX_NUM_MEDICATION_ADMINISTRATION = Integer.MAX_VALUE;
+    private final int maxNumOfPatients;
+    private final int maxNumOfEncounters;
+    private final int maxNumOfObservations;
+    private final int maxNumOfMedicationAdministrations;
 
-    private static int totalNumOfPatients = 0;
-    private static int totalNumOfEncounters = 0;
-    private static int totalNumOfObservations = 0;
-    private static int totalNumOfMedicationAdministrations = 0;
-    private static int totalNumOfLocations = 0;
-    private static int totalNumOfEncounterLocations = 0;
+    /**
+     * Columns of the projected rows used for the selection. The ID is the
+     * first column of every table.
+     */
+    private static final int ID = 0;
+    private static final int ENCOUNTER_PATIENT_ID = Table.ENCOUNTER.getColumnIndex("patient_id");
+    private static final int ENCOUNTER_LOCATION_ID = Table.ENCOUNTER.getColumnIndex("location_id");
+    private static final int OBSERVATION_PATIENT_ID = Table.OBSERVATION.getColumnIndex("patient_id");
+    private static final int OBSERVATION_ENCOUNTER_ID = Table.OBSERVATION.getColumnIndex("encounter_id");
+    private static final int MEDICATION_ADMINISTRATION_PATIENT_ID = Table.MEDICATION_ADMINISTRATION.getColumnIndex("patient_id");
+    private static final int MEDICATION_ADMINISTRATION_ENCOUNTER_ID = Table.MEDICATION_ADMINISTRATION.getColumnIndex("encounter_id");
+
+    /**
+     * Tables the selection is made on, which are projected at least key-only
+     * whichever tables are written.
+     */
+    private static final Set<Table> SELECTION_TABLES = EnumSet.of(Table.PATIENT, Table.ENCOUNTER, Table.OBSERVATION, Table.MEDICATION_ADMINISTRATION);
+
+    /**
+     * Columns holding the IDs of patients, encounters and locations, whose
+     * strings are shared by the rows kept for the selection.
+     */
+    private static final Map<Table, int[]> SHARED_ID_COLUMNS = new EnumMap<>(Table.class);
+
+    static {
+        for (Table table : Table.values()) {
+            String[] headers = table.getHeaders();
+            SHARED_ID_COLUMNS.put(table, IntStream.range(0, headers.length)
+                    .filter(i -> Table.getReferencedTable(headers[i]) != null || (i == ID && table.isReferenced()))
+                    .toArray());
+        }
+    }
+
+    private final MappingEngine mappingEngine;
+    private final CohortPrefilter prefilter;
+    private final ProjectionCache cache;
+
+    private int totalNumOfPatients = 0;
+    private int totalNumOfEncounters = 0;
+    private int totalNumOfObservations = 0;
+    private int totalNumOfMedicationAdministrations = 0;
+    private int totalNumOfLocations = 0;
+    private int totalNumOfEncounterLocations = 0;
+    private int numOfSkippedFiles = 0;
+
+    /**
+     * Options, in addition to the output and delta options:
+     * <pre>
+     * --max-patients=N                         maximum number of patients
+     * --max-encounters=N                       maximum number of encounters per patient
+     * --max-observations=N                     maximum number of observations per encounter
+     * --max-medication-administrations=N       maximum number of medication administrations per encounter
+     * --index=FILE                             corpus index used to skip files that are not needed
+     * --require-resources=TYPES                only patients whose bundle has these resource types
+     * --born-after=DATE                        only patients born after the date
+     * --born-before=DATE                       only patients born before the date
+     * --threads=N                              number of threads parsing the bundle files
+     * --parse-cache=DIR                        cache parsed bundles in the directory
+     * --tables=NAMES                           comma-separated tables to write, e.g. patients,observations
+     * --split-threshold=N                      bundle entries above which a bundle is extracted in parallel (default 0, never)
+     * --observation-components=true|false      a row for each quantity of an observation, including its components (default false)
+     * </pre>
+     * and the progress options of {@link ProgressReporter}.
+     *
+     * @param dataDir directory of the Synthea bundle files
+     * @param outDir output directory
+     * @param arguments options of the job
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public ReducedMapFromSynthea(Path dataDir, Path outDir, Arguments arguments) {
+        super(dataDir, outDir, arguments);
+        this.maxNumOfPatients = arguments.getInt("max-patients", Integer.MAX_VALUE);
+        this.maxNumOfEncounters = arguments.getInt("max-encounters", Integer.MAX_VALUE);
+        this.maxNumOfObservations = arguments.getInt("max-observations", Integer.MAX_VALUE);
+        this.maxNumOfMedicationAdministrations = arguments.getInt("max-medication-administrations", Integer.MAX_VALUE);
+        List<TableMapping<?>> tableMappings = isObservationComponents(arguments) ? SyntheaMappings.REDUCED_WITH_COMPONENTS : SyntheaMappings.REDUCED;
+        this.mappingEngine = new MappingEngine(tableMappings, getTables(arguments, tableMappings), SELECTION_TABLES, getSplitThreshold(arguments));
+        this.prefilter = CohortPrefilter.create(arguments);
+        this.cache = ProjectionCache.create(arguments, isObservationComponents(arguments) ? "reduced-components" : "reduced", SyntheaMappings.VERSION, mappingEngine);
+    }
 
     /**
      * @param args the command line arguments
@@ -75,6 +155,8 @@ public class ReducedMapFromSynthea extends AbstractSyntheaDataMapper {
     public static void main(String[] args) {
         Path dataDir = Paths.get(args[0]);
         Path outDir = Paths.get(args[1]);
+        Arguments arguments = Arguments.parse(args, 2);
+        ReducedMapFromSynthea mapper = new ReducedMapFromSynthea(dataDir, outDir, arguments);
         System.out.println("================================================================================");
         System.out.println("Reduced Map From Synthea Data");
         System.out.println("--------------------------------------------------------------------------------");
@@ -82,269 +164,198 @@ public class ReducedMapFromSynthea extends AbstractSyntheaDataMapper {
         System.out.printf("Output Directory: %s%n", outDir.toString());
         System.out.println();
         try {
-            map(dataDir, outDir);
+            mapper.map();
         } catch (IOException exception) {
             exception.printStackTrace(System.err);
         }
-        System.out.printf("Patients: %d%n", totalNumOfPatients);
-        System.out.printf("Encounters: %d%n", totalNumOfEncounters);
-        System.out.printf("Observations: %d%n", totalNumOfObservations);
-        System.out.printf("Medication Administration: %d%n", totalNumOfMedicationAdministrations);
-        System.out.printf("Locations: %d%n", totalNumOfLocations);
-        System.out.printf("Encounter Locations: %d%n", totalNumOfEncounterLocations);
+        System.out.printf("Patients: %d%n", mapper.getNumOfPatients());
+        System.out.printf("Encounters: %d%n", mapper.getNumOfEncounters());
+        System.out.printf("Observations: %d%n", mapper.getNumOfObservations());
+        System.out.printf("Medication Administration: %d%n", mapper.getNumOfMedicationAdministrations());
+        System.out.printf("Locations: %d%n", mapper.getNumOfLocations());
+        System.out.printf("Encounter Locations: %d%n", mapper.getNumOfEncounterLocations());
         System.out.println("================================================================================");
     }
 
-    private static void map(Path dataDir, Path outDir) throws IOException {
-        List<Bundle> bundles = getBundles(dataDir);
-        Map<String, Patient> patients = getPatients(bundles);
-        Map<String, List<Encounter>> patientEncounters = getPatientEncounters(bundles, patients.keySet());
-        Map<String, List<Observation>> encounterObservations = getEncounterObservations(bundles, patientEncounters);
-        Map<String, List<MedicationAdministration>> encounterMedicationAdministrations = getEncounterMedicationAdministrations(bundles, encounterObservations);
-        List<Organization> organizations = getOrganization(bundles, patientEncounters);
-
-        List<String> data = new LinkedList<>();  // used for construction line for export
-        exportPatients(patients, data, outDir);
-        exportEncounters(patientEncounters, data, outDir);
-        exportObservations(encounterObservations, data, outDir);
-        exportMedicationAdministration(encounterMedicationAdministrations, data, outDir);
-        exportLocationDerivedFromOrganizations(organizations, data, outDir);
-        exportEncounterLocations(patientEncounters, data, outDir);
+    @Override
+    public void map() throws IOException {
+        CorpusIndex index = arguments.has("index") ? CorpusIndex.read(Paths.get(arguments.getString("index", null)), dataDir) : null;
+        DeltaFilter deltaFilter = DeltaFilter.create(arguments);
+        try (ProgressReporter progressReporter = ProgressReporter.create(outDir, arguments)) {
+            OutputSink outputSink = new CountingOutputSink(OutputSinks.create(outDir, arguments), progressReporter);
+            map(index, outputSink, deltaFilter, progressReporter);
+        }
+        if (cache != null) {
+            System.out.printf("Parse cache hits: %d, misses: %d%n", cache.getNumOfHits(), cache.getNumOfMisses());
+        }
     }
 
-    private static void exportEncounterLocations(Map<String, List<Encounter>> patientEncounters, List<String> data, Path outDir) throws IOException {
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(Paths.get(outDir.toString(), "encounter_locations.tsv")))) {
-            // write out header
-            writer.println(toLineHeader(FileHeaders.ENCOUNTER_LOCATION));
-
-            for (List<Encounter> encounters : patientEncounters.values()) {
-                for (Encounter encounter : encounters) {
-                    Date start = encounter.getPeriod().getStart();
-                    Date end = encounter.getPeriod().getEnd();
-                    String encounterId = getCustomEncounterId(encounter);
-                    String locationId = getCustomLocationId(encounter);
-
-                    data.clear();
-                    data.add(encounterId);
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(start));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(end));
-                    data.add(locationId);
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    totalNumOfEncounterLocations++;
-                }
-            }
+    private void map(CorpusIndex index, OutputSink outputSink, DeltaFilter deltaFilter, ProgressReporter progressReporter) throws IOException {
+        List<BundleProjection> bundles = getBundles(index, progressReporter);
+        Map<String, Object[]> patients = getPatients(bundles);
+        Map<String, List<Object[]>> patientEncounters = getPatientEncounters(bundles, patients.keySet());
+        Map<String, List<Object[]>> encounterObservations = getEncounterObservations(bundles, patientEncounters);
+        Map<String, List<Object[]>> encounterMedicationAdministrations = getEncounterMedicationAdministrations(bundles, encounterObservations);
+        List<Object[]> locations = getLocations(bundles, patientEncounters);
+        List<Object[]> encounterLocations = getEncounterLocations(bundles, patientEncounters);
+        bundles.clear();
+
+        BundleProjection projection = new BundleProjection();
+        add(Table.PATIENT, List.of(patients.values()), projection);
+        add(Table.ENCOUNTER, patientEncounters.values(), projection);
+        add(Table.OBSERVATION, encounterObservations.values(), projection);
+        add(Table.MEDICATION_ADMINISTRATION, encounterMedicationAdministrations.values(), projection);
+        add(Table.LOCATION, List.of(locations), projection);
+        add(Table.ENCOUNTER_LOCATION, List.of(encounterLocations), projection);
+
+        if (deltaFilter != null) {
+            deltaFilter.loadIds(idMaps);
+            projection = deltaFilter.filter(projection);
         }
-    }
 
-    private static void exportLocationDerivedFromOrganizations(List<Organization> organizations, List<String> data, Path outDir) throws IOException {
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(Paths.get(outDir.toString(), "locations.tsv")))) {
-            // write out header
-            writer.println(toLineHeader(FileHeaders.LOCATION));
-
-            for (Organization organization : organizations) {
-                data.clear();
-                data.add(createCustomLocationId(organization.getIdElement()));
-                data.add(organization.getName());
-
-                Address address = organization.getAddressFirstRep();
-                String addressLine = address.getLine().isEmpty()
-                        ? "4200 Fifth Ave"
-                        : address.getLine().get(0).asStringValue();
-                data.add(addressLine);
-                data.add(address.getCity());
-                data.add(address.getState());
-                data.add(address.getPostalCode());
-                data.add(Location.LocationStatus.ACTIVE.toString());
-
-                data.add(organization.getTypeFirstRep().getCodingFirstRep().getCode());
-                data.add(organization.getTypeFirstRep().getCodingFirstRep().getSystem());
-                data.add(organization.getTypeFirstRep().getCodingFirstRep().getDisplay());
-
-                writer.println(data.stream().collect(Collectors.joining("\t")));
-                totalNumOfLocations++;
-            }
+        try (outputSink; TableWriters writers = TableWriters.open(outputSink, mappingEngine.getTables())) {
+            mappingEngine.write(projection, idMaps, writers);
         }
-    }
 
-    private static void exportMedicationAdministration(Map<String, List<MedicationAdministration>> encounterMedicationAdministrations, List<String> data, Path outDir) throws IOException {
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(Paths.get(outDir.toString(), "medication_administrations.tsv")))) {
-            // write out header
-            writer.println(toLineHeader(FileHeaders.MEDICATION_ADMINISTRATION));
-
-            for (List<MedicationAdministration> medicationAdministrations : encounterMedicationAdministrations.values()) {
-                for (MedicationAdministration medicationAdministration : medicationAdministrations) {
-                    data.clear();
-                    data.add(getCustomMedicationAdministrationId(medicationAdministration));
-                    data.add(medicationAdministration.getStatus().getDisplay());
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(medicationAdministration.getEffectiveDateTimeType().getValue()));
-                    data.add(getCustomPatientId(medicationAdministration));
-                    data.add(getCustomEncounterId(medicationAdministration));
-
-                    Coding medicationCoding = medicationAdministration.getMedicationCodeableConcept().getCodingFirstRep();
-                    data.add(medicationCoding.getCode());
-                    data.add(medicationCoding.getSystem());
-                    data.add(medicationCoding.getDisplay());
-
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    totalNumOfMedicationAdministrations++;
-                }
-            }
+        List<Table> tables = mappingEngine.getTables();
+        totalNumOfPatients += getNumOfRows(projection, Table.PATIENT, tables);
+        totalNumOfEncounters += getNumOfRows(projection, Table.ENCOUNTER, tables);
+        totalNumOfObservations += getNumOfRows(projection, Table.OBSERVATION, tables);
+        totalNumOfMedicationAdministrations += getNumOfRows(projection, Table.MEDICATION_ADMINISTRATION, tables);
+        totalNumOfLocations += getNumOfRows(projection, Table.LOCATION, tables);
+        totalNumOfEncounterLocations += getNumOfRows(projection, Table.ENCOUNTER_LOCATION, tables);
+
+        if (deltaFilter != null) {
+            deltaFilter.save(idMaps);
         }
     }
 
-    private static void exportObservations(Map<String, List<Observation>> encounterObservations, List<String> data, Path outDir) throws IOException {
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(Paths.get(outDir.toString(), "observations.tsv")))) {
-            // write out header
-            writer.println(toLineHeader(FileHeaders.OBSERVATION));
-
-            for (List<Observation> observations : encounterObservations.values()) {
-                for (Observation observation : observations) {
-                    data.clear();
-                    data.add(getCustomObservationId(observation));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(observation.getEffectiveDateTimeType().getValue()));
-                    data.add(getCustomPatientId(observation));
-                    data.add(getCustomEncounterId(observation));
-                    data.add(observation.getCode().getCodingFirstRep().getCode());
-                    data.add(observation.getCode().getCodingFirstRep().getDisplay());
-
-                    Type type = observation.getValue();
-                    if (type == null) {
-                        type = observation.getComponentFirstRep().getValue();
-                        if (type instanceof Quantity) {
-                            Quantity quantity = observation.getComponentFirstRep().getValueQuantity();
-                            data.add(quantity.getValue().toString());
-                            data.add(quantity.getUnit());
-                            data.add("numeric");
-                        } else {
-                            data.add("");
-                            data.add("");
-                            data.add("");
-                        }
-                    } else {
-                        if (type instanceof Quantity) {
-                            data.add(observation.getValueQuantity().getValue().toString());
-                            data.add(observation.getValueQuantity().getUnit());
-                            data.add("numeric");
-                        } else {
-                            data.add("");
-                            data.add("");
-                            data.add("");
-                        }
-                    }
-                    data.add(observation.getCategoryFirstRep().getCodingFirstRep().getDisplay());
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    totalNumOfObservations++;
-                }
+    public int getNumOfPatients() {
+        return totalNumOfPatients;
+    }
+
+    public int getNumOfEncounters() {
+        return totalNumOfEncounters;
+    }
+
+    public int getNumOfObservations() {
+        return totalNumOfObservations;
+    }
+
+    public int getNumOfMedicationAdministrations() {
+        return totalNumOfMedicationAdministrations;
+    }
+
+    public int getNumOfLocations() {
+        return totalNumOfLocations;
+    }
+
+    public int getNumOfEncounterLocations() {
+        return totalNumOfEncounterLocations;
+    }
+
+    /**
+     * @return the number of bundle files skipped using the index
+     */
+    public int getNumOfSkippedFiles() {
+        return numOfSkippedFiles;
+    }
+
+    /**
+     * @return the parse cache of the job, or null if the --parse-cache
+     * option is not given
+     */
+    public ProjectionCache getParseCache() {
+        return cache;
+    }
+
+    /**
+     * @return the number of rows written to the table
+     */
+    private static int getNumOfRows(BundleProjection projection, Table table, List<Table> tables) {
+        return tables.contains(table) ? projection.getRows(table).size() : 0;
+    }
+
+    /**
+     * Add the selected rows.
+     */
+    private static void add(Table table, Collection<? extends Collection<Object[]>> rowGroups, BundleProjection projection) {
+        for (Collection<Object[]> rows : rowGroups) {
+            for (Object[] row : rows) {
+                projection.add(table, row);
             }
         }
     }
 
-    private static void exportEncounters(Map<String, List<Encounter>> patientEncounters, List<String> data, Path outDir) throws IOException {
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(Paths.get(outDir.toString(), "encounters.tsv")))) {
-            // write out header
-            writer.println(toLineHeader(FileHeaders.ENCOUNTER));
-
-            for (List<Encounter> encounters : patientEncounters.values()) {
-                for (Encounter encounter : encounters) {
-                    data.clear();
-                    data.add(getCustomEncounterId(encounter));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(encounter.getPeriod().getStart()));
-                    data.add(DateFormats.MM_DD_YYYY_HHMMSS_AM.format(encounter.getPeriod().getEnd()));
-                    data.add(getCustomPatientId(encounter));
-
-                    CodeableConcept type = encounter.getTypeFirstRep();
-                    String typeCode = type.getCodingFirstRep().getCode();
-                    String typeDisplay = type.getCodingFirstRep().getDisplay();
-                    data.add(getValue(typeCode, "394656005"));
-                    data.add(getValue(typeDisplay, "Inpatient"));
-
-                    CodeableConcept reason = encounter.getReasonCodeFirstRep();
-                    String reasonCode = reason.getCodingFirstRep().getCode();
-                    String reasonDisplay = reason.getCodingFirstRep().getDisplay();
-                    data.add(getValue(reasonCode, "126598008"));
-                    data.add(getValue(reasonDisplay, "Neoplasm of connective tissues disorder"));
-                    data.add(getCustomLocationId(encounter));
-                    data.add(encounter.getServiceProvider().getDisplay());
-
-                    writer.println(data.stream().collect(Collectors.joining("\t")));
-                    totalNumOfEncounters++;
+    /**
+     * Get the encounter locations of the selected encounters, in the order of
+     * the encounters.
+     */
+    private static List<Object[]> getEncounterLocations(List<BundleProjection> bundles, Map<String, List<Object[]>> patientEncounters) {
+        Map<Object, Object[]> encounterLocations = new HashMap<>();
+        for (List<Object[]> encounters : patientEncounters.values()) {
+            encounters.forEach(encounter -> encounterLocations.put(encounter[ID], null));
+        }
+
+        for (BundleProjection bundle : bundles) {
+            for (Object[] encounterLocation : bundle.getRows(Table.ENCOUNTER_LOCATION)) {
+                if (encounterLocations.containsKey(encounterLocation[ID])) {
+                    encounterLocations.put(encounterLocation[ID], encounterLocation);
                 }
             }
         }
-    }
 
-    private static void exportPatients(Map<String, Patient> patients, List<String> data, Path outDir) throws IOException {
-        try (PrintWriter writer = new PrintWriter(Files.newOutputStream(Paths.get(outDir.toString(), "patients.tsv")))) {
-            // write out header
-            writer.println(toLineHeader(FileHeaders.PATIENT));
-
-            for (Patient patient : patients.values()) {
-                data.clear();
-                data.add(getCustomPatientId(patient));
-                data.add(DateFormats.MM_DD_YYYY.format(patient.getBirthDate()));
-                data.add(patient.getNameFirstRep().getFamily());
-                data.add(patient.getNameFirstRep().getGiven().get(0).getValueAsString());
-                data.add(getValue(patient.getGender().toCode(), "female"));
-
-                Address address = patient.getAddressFirstRep();
-                String addressLine = address.getLine().isEmpty()
-                        ? "4200 Fifth Ave"
-                        : address.getLine().get(0).asStringValue();
-                data.add(addressLine);
-                data.add(getValue(patient.getAddressFirstRep().getCity(), "Pittsburgh"));
-                data.add(getValue(patient.getAddressFirstRep().getState(), "Pennsylvania"));
-                data.add(getValue(patient.getAddressFirstRep().getPostalCode(), "15260"));
-                data.add(getValue(patient.getAddressFirstRep().getCountry(), "US"));
-
-                writer.println(data.stream().collect(Collectors.joining(DATA_DELIMITER)));
-                totalNumOfPatients++;
+        List<Object[]> rows = new LinkedList<>();
+        for (List<Object[]> encounters : patientEncounters.values()) {
+            for (Object[] encounter : encounters) {
+                Object[] encounterLocation = encounterLocations.get(encounter[ID]);
+                if (encounterLocation != null) {
+                    rows.add(encounterLocation);
+                }
             }
         }
+
+        return rows;
     }
 
-    private static List<Organization> getOrganization(List<Bundle> bundles, Map<String, List<Encounter>> patientEncounters) {
-        List<Organization> organizations = new LinkedList<>();
+    /**
+     * Get the locations of the selected encounters. An organization is in
+     * every bundle with an encounter it provides, so only its first location
+     * row is kept.
+     */
+    private static List<Object[]> getLocations(List<BundleProjection> bundles, Map<String, List<Object[]>> patientEncounters) {
+        Map<Object, Object[]> locations = new LinkedHashMap<>();
 
         // get unique organization IDs from encounters
-        Set<String> organizationIds = new HashSet<>();
-        for (List<Encounter> encounters : patientEncounters.values()) {
-            encounters.forEach(encounter -> {
-                organizationIds.add(encounter.getServiceProvider().getReferenceElement().getIdPart().replaceAll("synthea\\|", ""));
-            });
+        Set<Object> organizationIds = new HashSet<>();
+        for (List<Object[]> encounters : patientEncounters.values()) {
+            encounters.forEach(encounter -> organizationIds.add(encounter[ENCOUNTER_LOCATION_ID]));
         }
 
-        for (Bundle bundle : bundles) {
-            for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-                if (entry.getResource().fhirType().equals("Organization")) {
-                    Organization organization = (Organization) entry.getResource();
-                    String organizationId = organization.getIdElement().getIdPart().replaceAll("urn:uuid:", "");
-                    if (organizationIds.contains(organizationId)) {
-                        organizations.add(organization);
-                    }
+        for (BundleProjection bundle : bundles) {
+            for (Object[] location : bundle.getRows(Table.LOCATION)) {
+                if (organizationIds.contains(location[ID])) {
+                    locations.putIfAbsent(location[ID], location);
                 }
             }
         }
 
-        return organizations;
+        return new ArrayList<>(locations.values());
     }
 
-    private static Map<String, List<MedicationAdministration>> getEncounterMedicationAdministrations(List<Bundle> bundles, Map<String, List<Observation>> encounterObservations) {
-        Map<String, List<MedicationAdministration>> encounterMedicationAdministrations = new HashMap<>();
+    private Map<String, List<Object[]>> getEncounterMedicationAdministrations(List<BundleProjection> bundles, Map<String, List<Object[]>> encounterObservations) {
+        Map<String, List<Object[]>> encounterMedicationAdministrations = new HashMap<>();
 
         // initialize encounter-medication-administration list with empty lists
         for (String encounterId : encounterObservations.keySet()) {
             encounterMedicationAdministrations.put(encounterId, new LinkedList<>());
         }
 
-        for (Bundle bundle : bundles) {
-            for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-                if (entry.getResource().fhirType().equals("MedicationAdministration")) {
-                    MedicationAdministration medicationAdministration = (MedicationAdministration) entry.getResource();
-                    String encounterId = medicationAdministration.getContext().getReference();
-                    List<MedicationAdministration> medicationAdministrations = encounterMedicationAdministrations.get(encounterId);
-                    if (medicationAdministrations != null && medicationAdministrations.size() < MAX_NUM_MEDICATION_ADMINISTRATION) {
-                        medicationAdministrations.add(medicationAdministration);
-                    }
+        for (BundleProjection bundle : bundles) {
+            for (Object[] medicationAdministration : bundle.getRows(Table.MEDICATION_ADMINISTRATION)) {
+                List<Object[]> medicationAdministrations = encounterMedicationAdministrations.get(medicationAdministration[MEDICATION_ADMINISTRATION_ENCOUNTER_ID]);
+                if (medicationAdministrations != null && medicationAdministrations.size() < maxNumOfMedicationAdministrations) {
+                    medicationAdministrations.add(medicationAdministration);
                 }
             }
         }
@@ -352,23 +363,19 @@ public class ReducedMapFromSynthea extends AbstractSyntheaDataMapper {
         return encounterMedicationAdministrations;
     }
 
-    private static Map<String, List<Observation>> getEncounterObservations(List<Bundle> bundles, Map<String, List<Encounter>> patientEncounters) {
-        Map<String, List<Observation>> encounterObservations = new HashMap<>();
+    private Map<String, List<Object[]>> getEncounterObservations(List<BundleProjection> bundles, Map<String, List<Object[]>> patientEncounters) {
+        Map<String, List<Object[]>> encounterObservations = new HashMap<>();
 
         // initialize encounter-observation list with empty lists
-        for (List<Encounter> encounters : patientEncounters.values()) {
-            encounters.forEach(encounter -> encounterObservations.put(encounter.getIdElement().getIdPart(), new LinkedList<>()));
+        for (List<Object[]> encounters : patientEncounters.values()) {
+            encounters.forEach(encounter -> encounterObservations.put((String) encounter[ID], new LinkedList<>()));
         }
 
-        for (Bundle bundle : bundles) {
-            for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-                if (entry.getResource().fhirType().equals("Observation")) {
-                    Observation observation = (Observation) entry.getResource();
-                    String encounterId = observation.getEncounter().getReference();
-                    List<Observation> observations = encounterObservations.get(encounterId);
-                    if (observations != null && observations.size() < MAX_NUM_OBSERVATIONS) {
-                        observations.add(observation);
-                    }
+        for (BundleProjection bundle : bundles) {
+            for (Object[] observation : bundle.getRows(Table.OBSERVATION)) {
+                List<Object[]> observations = encounterObservations.get(observation[OBSERVATION_ENCOUNTER_ID]);
+                if (observations != null && observations.size() < maxNumOfObservations) {
+                    observations.add(observation);
                 }
             }
         }
@@ -376,87 +383,69 @@ public class ReducedMapFromSynthea extends AbstractSyntheaDataMapper {
         return encounterObservations;
     }
 
-    private static Map<String, List<Encounter>> getPatientEncounters(List<Bundle> bundles, Set<String> patientIds) {
-        Map<String, List<Encounter>> patientEncounters = new HashMap<>();
+    /**
+     * Get the encounters of the selected patients, up to the encounter limit,
+     * in the order of the bundles and, within a bundle, in the order given
+     * by {@link #orderEncounters(BundleProjection, Set)}.
+     */
+    private Map<String, List<Object[]>> getPatientEncounters(List<BundleProjection> bundles, Set<String> patientIds) {
+        Map<String, List<Object[]>> patientEncounters = new HashMap<>();
 
         // initialize patient-encounter list with empty lists
         patientIds.forEach(patientId -> patientEncounters.put(patientId, new LinkedList<>()));
 
-        for (Bundle bundle : bundles) {
-            // get encounter IDs of encounters that have medication adminstration
-            Set<String> medAdminEncounterIds = bundle.getEntry().stream()
-                    .filter(e -> e.getResource().fhirType().equals("MedicationAdministration"))
-                    .map(e -> (MedicationAdministration) e.getResource())
-                    .map(e -> e.getContext().getReference())
-                    .collect(Collectors.toSet());
-
-            // get encounter IDs of encounters that have observations without medication adminstration
-            Set<String> observationEncounterIds = bundle.getEntry().stream()
-                    .filter(e -> e.getResource().fhirType().equals("Observation"))
-                    .map(e -> (Observation) e.getResource())
-                    .map(e -> e.getEncounter().getReference())
-                    .filter(e -> !medAdminEncounterIds.contains(e))
-                    .collect(Collectors.toSet());
-
-            // extract encounters
-            List<Encounter> medAdminEncounters = new LinkedList<>();
-            List<Encounter> observationEncounters = new LinkedList<>();
-            List<Encounter> regularEncounters = new LinkedList<>();
-            for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-                if (entry.getResource().fhirType().equals("Encounter")) {
-                    Encounter encounter = (Encounter) entry.getResource();
-                    String encounterId = encounter.getIdElement().getIdPart();
-                    if (medAdminEncounterIds.contains(encounterId)) {
-                        medAdminEncounters.add(encounter);
-                    } else if (observationEncounterIds.contains(encounterId)) {
-                        observationEncounters.add(encounter);
-                    } else {
-                        regularEncounters.add(encounter);
-                    }
-                }
-            }
-
-            for (Encounter encounter : medAdminEncounters) {
-                String patientId = encounter.getSubject().getReference();
-                List<Encounter> encounters = patientEncounters.get(patientId);
-                if (encounters != null && encounters.size() < MAX_NUM_ENCOUNTERS) {
-                    encounters.add(encounter);
-                }
-            }
-            for (Encounter encounter : observationEncounters) {
-                String patientId = encounter.getSubject().getReference();
-                List<Encounter> encounters = patientEncounters.get(patientId);
-                if (encounters != null && encounters.size() < MAX_NUM_ENCOUNTERS) {
-                    encounters.add(encounter);
-                }
-            }
-            for (Encounter encounter : regularEncounters) {
-                String patientId = encounter.getSubject().getReference();
-                List<Encounter> encounters = patientEncounters.get(patientId);
-                if (encounters != null && encounters.size() < MAX_NUM_ENCOUNTERS) {
-                    encounters.add(encounter);
-                }
+        for (BundleProjection bundle : bundles) {
+            for (Object[] encounter : bundle.getRows(Table.ENCOUNTER)) {
+                addEncounter(patientEncounters, encounter);
             }
         }
 
         return patientEncounters;
     }
 
-    private static Map<String, Patient> getPatients(List<Bundle> bundles) {
-        Map<String, Patient> patients = new HashMap<>();
+    /**
+     * Order the encounters of a bundle for the encounter limit: encounters
+     * with medication administrations first, then encounters with
+     * observations, then the others, each in bundle order.
+     *
+     * @param bundle the projected bundle, whose encounters are reordered
+     * @param medicationEncounterIds the encounters with medication
+     * administrations given by the index, or null to find them in the
+     * projected medication administrations
+     */
+    private static void orderEncounters(BundleProjection bundle, Set<?> medicationEncounterIds) {
+        Set<?> medAdminEncounterIds = (medicationEncounterIds != null)
+                ? medicationEncounterIds
+                : bundle.getRows(Table.MEDICATION_ADMINISTRATION).stream()
+                        .map(e -> e[MEDICATION_ADMINISTRATION_ENCOUNTER_ID])
+                        .collect(Collectors.toSet());
+        Set<Object> observationEncounterIds = bundle.getRows(Table.OBSERVATION).stream()
+                .map(e -> e[OBSERVATION_ENCOUNTER_ID])
+                .collect(Collectors.toSet());
+
+        bundle.getRows(Table.ENCOUNTER).sort(Comparator.comparingInt(encounter -> medAdminEncounterIds.contains(encounter[ID]) ? 0
+                : observationEncounterIds.contains(encounter[ID]) ? 1 : 2));
+    }
+
+    private void addEncounter(Map<String, List<Object[]>> patientEncounters, Object[] encounter) {
+        List<Object[]> encounters = patientEncounters.get(encounter[ENCOUNTER_PATIENT_ID]);
+        if (encounters != null && encounters.size() < maxNumOfEncounters) {
+            encounters.add(encounter);
+        }
+    }
+
+    private Map<String, Object[]> getPatients(List<BundleProjection> bundles) {
+        Map<String, Object[]> patients = new HashMap<>();
 
         int count = 0;
-        for (Bundle bundle : bundles) {
-            if (count >= MAX_NUM_PATIENTS) {
+        for (BundleProjection bundle : bundles) {
+            if (count >= maxNumOfPatients) {
                 break;
             }
 
-            Patient patient = bundle.getEntry().stream()
-                    .filter(e -> e.getResource().fhirType().equals("Patient"))
-                    .map(e -> (Patient) e.getResource())
-                    .findFirst().orElse(null);
-            if (patient != null) {
-                patients.put(patient.getIdElement().getIdPart(), patient);
+            List<Object[]> rows = bundle.getRows(Table.PATIENT);
+            if (!rows.isEmpty()) {
+                patients.put((String) rows.get(0)[ID], rows.get(0));
                 count++;
             }
         }
@@ -464,21 +453,207 @@ public class ReducedMapFromSynthea extends AbstractSyntheaDataMapper {
         return patients;
     }
 
-    private static List<Bundle> getBundles(Path dataDir) throws IOException {
-        List<Bundle> bundles = new LinkedList<>();
-        for (Path file : FileUtils.listFiles(dataDir)) {
-            bundles.add(getBundle(file));
+    /**
+     * Project the bundles needed for the selection, in scan order regardless of
+     * the number of threads, so the selection does not depend on which bundle
+     * is parsed first. Without an index or a cohort, all the bundles are
+     * parsed. A bundle whose patient is outside the cohort is skipped by its
+     * worker thread after a scan of its first bytes. With an index, bundles
+     * that cannot contribute are skipped while scanning, see
+     * {@link IndexFilter}, and the encounters with medication administrations
+     * are taken from the index. Only the rows the selection can use are kept,
+     * see {@link BundleCollector}.
+     */
+    private List<BundleProjection> getBundles(CorpusIndex index, ProgressReporter progressReporter) throws IOException {
+        IndexFilter filter = (index == null) ? null : new IndexFilter(index);
+        AtomicInteger numOfPrefilteredFiles = new AtomicInteger();
+
+        // files outside the cohort are dropped on the worker threads, and the
+        // others are collected in scan order, so the patient limit applies in
+        // scan order to the patients in the cohort
+        BundleCollector bundles = new BundleCollector();
+        try (FileScanner scanner = FileUtils.scanBundleFiles(dataDir, numOfThreads > 1, filter)) {
+            progressReporter.track(scanner);
+            ParallelFileProcessor.run(scanner, numOfThreads,
+                    file -> (prefilter != null && !prefilter.accept(file.file())) ? null : project(file.file(), mappingEngine, cache),
+                    (file, bundle) -> {
+                        if (bundle == null) {
+                            numOfPrefilteredFiles.incrementAndGet();
+                        } else {
+                            CorpusIndex.Entry entry = (index == null) ? null : index.getCurrent(file.file());
+                            orderEncounters(bundle, (entry == null) ? null : entry.medicationEncounterIds());
+                        }
+                        bundles.add(file.sequence(), bundle);
+                        progressReporter.fileDone(file.size());
+                    });
+        }
+        if (filter != null) {
+            numOfSkippedFiles = filter.numOfSkippedFiles.get();
+            System.out.printf("Files skipped using the index: %d%n", numOfSkippedFiles);
+        }
+        if (prefilter != null) {
+            System.out.printf("Files of patients outside the cohort: %d%n", numOfPrefilteredFiles.get());
+        }
+
+        return bundles.bundles;
+    }
+
+    /**
+     * Collects the projected bundles in scan order as they arrive from the
+     * worker threads. A bundle that arrives early waits until the bundles
+     * before it have arrived, and is then reduced to the rows the selection
+     * can use. Until the patient limit is reached, the bundles are kept
+     * whole. Beyond it, a bundle keeps only its locations, and the rows of
+     * the selected patients if it is not self-contained. The ID strings of
+     * the kept rows are shared between rows, so an observation does not hold
+     * its own copies of the patient and encounter IDs.
+     */
+    private final class BundleCollector {
+
+        private final Map<Long, BundleProjection> pendingBundles = new HashMap<>();
+        private final List<BundleProjection> bundles = new ArrayList<>();
+        private final Set<Object> patientIds = new HashSet<>();
+        private final Map<String, String> sharedIds = new HashMap<>();
+        private long nextSequence;
+        private int numOfPatients;
+
+        /**
+         * @param sequence position of the bundle file in scan order
+         * @param bundle the projected bundle, or null if it was dropped
+         */
+        private void add(long sequence, BundleProjection bundle) {
+            pendingBundles.put(sequence, bundle);
+            while (pendingBundles.containsKey(nextSequence)) {
+                BundleProjection next = pendingBundles.remove(nextSequence++);
+                if (next != null) {
+                    bundles.add(reduce(next));
+                }
+            }
+        }
+
+        private BundleProjection reduce(BundleProjection bundle) {
+            if (numOfPatients < maxNumOfPatients) {
+                List<Object[]> patients = bundle.getRows(Table.PATIENT);
+                if (!patients.isEmpty()) {
+                    patientIds.add(patients.get(0)[ID]);
+                    numOfPatients++;
+                }
+                for (Table table : bundle.getTables()) {
+                    bundle.getRows(table).forEach(row -> share(table, row));
+                }
+
+                return bundle;
+            }
+
+            BundleProjection reduced = new BundleProjection();
+            Set<Object> encounterIds = new HashSet<>();
+            keep(bundle, Table.LOCATION, row -> true, reduced);
+            keep(bundle, Table.ENCOUNTER, encounter -> patientIds.contains(encounter[ENCOUNTER_PATIENT_ID]) && encounterIds.add(encounter[ID]), reduced);
+            keep(bundle, Table.ENCOUNTER_LOCATION, encounterLocation -> encounterIds.contains(encounterLocation[ID]), reduced);
+            keep(bundle, Table.OBSERVATION, observation -> patientIds.contains(observation[OBSERVATION_PATIENT_ID]), reduced);
+            keep(bundle, Table.MEDICATION_ADMINISTRATION, medicationAdministration -> patientIds.contains(medicationAdministration[MEDICATION_ADMINISTRATION_PATIENT_ID]), reduced);
+
+            return reduced;
+        }
+
+        private void keep(BundleProjection bundle, Table table, Predicate<Object[]> isKept, BundleProjection reduced) {
+            for (Object[] row : bundle.getRows(table)) {
+                if (isKept.test(row)) {
+                    reduced.add(table, share(table, row));
+                }
+            }
+        }
+
+        private Object[] share(Table table, Object[] row) {
+            for (int column : SHARED_ID_COLUMNS.get(table)) {
+                if (row[column] instanceof String id) {
+                    String sharedId = sharedIds.putIfAbsent(id, id);
+                    if (sharedId != null) {
+                        row[column] = sharedId;
+                    }
+                }
+            }
+
+            return row;
         }
 
-        return bundles;
     }
 
-    private static boolean hasMedicationAdministration(Bundle bundle) {
-        Bundle.BundleEntryComponent entryComponent = bundle.getEntry().stream()
-                .filter(e -> e.getResource().fhirType().equals("MedicationAdministration"))
-                .findFirst().orElse(null);
+    /**
+     * Skips, while scanning, the bundles that have not changed since they
+     * were indexed and are certain to contribute nothing to the selection.
+     * Such a bundle has all of its resources belonging to its patient, if
+     * any, and either has no patient or its patient is beyond the patient
+     * limit, so at most its organizations are selected, as the locations of
+     * the selected encounters. It is skipped if each of its organizations is
+     * already in a bundle that was not skipped, or, beyond the patient
+     * limit, if no encounter that can be selected is provided by it. The
+     * encounters that can be selected are those of the bundles scanned
+     * before and of the bundles that are not self-contained.
+     *
+     * With a cohort, which patients count toward the limit, and which
+     * bundles are kept, is only known after the scan, so only bundles
+     * without a patient and without organizations are skipped. An unindexed
+     * bundle scanned before may have encounters of any organization, so
+     * organizations are then only skipped if already kept.
+     */
+    private final class IndexFilter implements FileScanner.Filter {
+
+        private final CorpusIndex index;
+        private final Set<String> neededOrganizationIds = new HashSet<>();
+        private final Set<String> keptOrganizationIds = new HashSet<>();
+        private final AtomicInteger numOfSkippedFiles = new AtomicInteger();
+        private int numOfPatients;
+        private boolean hasUnindexedFiles;
+
+        private IndexFilter(CorpusIndex index) {
+            this.index = index;
+            for (CorpusIndex.Entry entry : index.getEntries()) {
+                if (!entry.selfContained()) {
+                    neededOrganizationIds.addAll(entry.serviceProviderIds());
+                }
+            }
+        }
+
+        @Override
+        public boolean accept(Path file) throws IOException {
+            CorpusIndex.Entry entry = index.getCurrent(file);
+            if (entry == null) {
+                hasUnindexedFiles = true;
+                return true;
+            }
+            if (isSkipped(entry)) {
+                numOfSkippedFiles.incrementAndGet();
+                return false;
+            }
+
+            if (entry.hasPatient()) {
+                numOfPatients++;
+            }
+            neededOrganizationIds.addAll(entry.serviceProviderIds());
+            if (prefilter == null) {
+                keptOrganizationIds.addAll(entry.organizationIds());
+            }
+
+            return true;
+        }
+
+        private boolean isSkipped(CorpusIndex.Entry entry) {
+            boolean isBeyondLimit = prefilter == null && numOfPatients >= maxNumOfPatients;
+            if (!entry.selfContained() || (entry.hasPatient() && !isBeyondLimit)) {
+                return false;
+            }
+
+            boolean isNeedKnown = isBeyondLimit && !hasUnindexedFiles;
+            for (String organizationId : entry.organizationIds()) {
+                if (!keptOrganizationIds.contains(organizationId) && (!isNeedKnown || neededOrganizationIds.contains(organizationId))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
 
-        return (entryComponent != null);
     }
 
 }
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import static edu.pitt.dbmi.brainai.demo.data.synthea.AbstractSyntheaDataMapper.getValue;
+import edu.pitt.dbmi.brainai.demo.data.mapping.TableMapping;
+import java.util.ArrayList;
+import java.util.List;
+import org.hl7.fhir.r4.model.Address;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Location;
+import org.hl7.fhir.r4.model.MedicationAdministration;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.Type;
+
+/**
+ * Table mappings from Synthea resources. {@link #FULL} is used by
+ * {@link MapFromSynthea} and {@link #REDUCED} by
+ * {@link ReducedMapFromSynthea}, or {@link #FULL_WITH_COMPONENTS} and
+ * {@link #REDUCED_WITH_COMPONENTS} to map every quantity of an observation.
+ *
+ * Oct 18, 2026 2:31:12 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class SyntheaMappings {
+
+    /**
+     * Version of what the mappings extract, which identifies cached
+     * projections. Increase it whenever an extractor changes.
+     */
+    public static final int VERSION = 3;
+
+    private static final String[][] LOCATION_TYPES = {
+        {
+            "INLAB",
+            "inpatient laboratory",
+            "A location that plays the role of delivering services which may include tests are done on clinical specimens to get health information about a patient pertaining to the diagnosis, treatment, and prevention of disease for a hospital visit longer than one day."
+        },
+        {
+            "PEDICU",
+            "Pediatric intensive care unit",
+            ""
+        },
+        {
+            "ICU",
+            "Intensive care unit",
+            ""
+        }
+    };
+
+    public static final TableMapping<Patient> PATIENT = TableMapping.builder(Table.PATIENT, Patient.class)
+            .assignedId(Table.PATIENT, SyntheaMappings::getId)
+            .column(Patient::getBirthDate)
+            .column(patient -> patient.getNameFirstRep().getFamily())
+            .column(patient -> patient.getNameFirstRep().getGiven().get(0).getValueAsString())
+            .column(patient -> getValue(patient.getGender().toCode(), "female"))
+            .column(patient -> getAddressLine(patient.getAddressFirstRep()))
+            .column(patient -> getValue(patient.getAddressFirstRep().getCity(), "Pittsburgh"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getState(), "Pennsylvania"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getPostalCode(), "15260"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getCountry(), "US"))
+            .build();
+
+    public static final TableMapping<Encounter> ENCOUNTER = TableMapping.builder(Table.ENCOUNTER, Encounter.class)
+            .assignedId(Table.ENCOUNTER, SyntheaMappings::getId)
+            .column(encounter -> encounter.getPeriod().getStart())
+            .column(encounter -> encounter.getPeriod().getEnd())
+            .referencedId(Table.PATIENT, encounter -> encounter.getSubject().getReference())
+            .column(encounter -> getValue(encounter.getTypeFirstRep().getCodingFirstRep().getCode(), "394656005"))
+            .column(encounter -> getValue(encounter.getTypeFirstRep().getCodingFirstRep().getDisplay(), "Inpatient"))
+            .column(encounter -> getValue(encounter.getReasonCodeFirstRep().getCodingFirstRep().getCode(), "126598008"))
+            .column(encounter -> getValue(encounter.getReasonCodeFirstRep().getCodingFirstRep().getDisplay(), "Neoplasm of connective tissues disorder"))
+            .assignedId(Table.LOCATION, SyntheaMappings::getServiceProviderId)
+            .column(encounter -> encounter.getServiceProvider().getDisplay())
+            .build();
+
+    /**
+     * Observations valued by a quantity, or else by the quantity of the first
+     * component.
+     */
+    public static final TableMapping<Observation> OBSERVATION = TableMapping.builder(Table.OBSERVATION, Observation.class)
+            .assignedId(Table.OBSERVATION, SyntheaMappings::getId)
+            .column(observation -> observation.getEffectiveDateTimeType().getValue())
+            .referencedId(Table.PATIENT, observation -> observation.getSubject().getReference())
+            .referencedId(Table.ENCOUNTER, observation -> observation.getEncounter().getReference())
+            .column(observation -> observation.getCode().getCodingFirstRep().getCode())
+            .column(observation -> observation.getCode().getCodingFirstRep().getDisplay())
+            .column(observation -> getQuantityValue(getQuantityOrComponentQuantity(observation)))
+            .column(observation -> getQuantityUnit(getQuantityOrComponentQuantity(observation)))
+            .column(observation -> getQuantityType(getQuantityOrComponentQuantity(observation)))
+            .column(observation -> observation.getCategoryFirstRep().getCodingFirstRep().getDisplay())
+            .build();
+
+    /**
+     * A row for the quantity of each observation and for the quantity of each
+     * of its components, such as the systolic and diastolic pressures of a
+     * blood pressure panel. Component rows have the code of the component.
+     */
+    public static final TableMapping<Observation> COMPONENT_OBSERVATION = TableMapping.builder(Table.OBSERVATION, Observation.class)
+            .elements(SyntheaMappings::getQuantityElements)
+            .assignedElementId(Table.OBSERVATION, SyntheaMappings::getId)
+            .column(observation -> observation.getEffectiveDateTimeType().getValue())
+            .referencedId(Table.PATIENT, observation -> observation.getSubject().getReference())
+            .referencedId(Table.ENCOUNTER, observation -> observation.getEncounter().getReference())
+            .elementColumn(QuantityElement.class, element -> element.coding().getCode())
+            .elementColumn(QuantityElement.class, element -> element.coding().getDisplay())
+            .elementColumn(QuantityElement.class, element -> getQuantityValue(element.quantity()))
+            .elementColumn(QuantityElement.class, element -> getQuantityUnit(element.quantity()))
+            .elementColumn(QuantityElement.class, element -> getQuantityType(element.quantity()))
+            .column(observation -> observation.getCategoryFirstRep().getCodingFirstRep().getDisplay())
+            .build();
+
+    public static final TableMapping<MedicationAdministration> MEDICATION_ADMINISTRATION = TableMapping.builder(Table.MEDICATION_ADMINISTRATION, MedicationAdministration.class)
+            .assignedId(Table.MEDICATION_ADMINISTRATION, SyntheaMappings::getId)
+            .column(medicationAdministration -> medicationAdministration.getStatus().getDisplay())
+            .column(medicationAdministration -> medicationAdministration.getEffectiveDateTimeType().getValue())
+            .referencedId(Table.PATIENT, medicationAdministration -> medicationAdministration.getSubject().getReference())
+            .referencedId(Table.ENCOUNTER, medicationAdministration -> medicationAdministration.getContext().getReference())
+            .column(medicationAdministration -> getMedicationCoding(medicationAdministration).getCode())
+            .column(medicationAdministration -> getMedicationCoding(medicationAdministration).getSystem())
+            .column(medicationAdministration -> getMedicationCoding(medicationAdministration).getDisplay())
+            .build();
+
+    /**
+     * Locations derived from organizations. An organization is embedded in
+     * every bundle with an encounter it provides, so its location is written
+     * once.
+     */
+    public static final TableMapping<Organization> LOCATION = TableMapping.builder(Table.LOCATION, Organization.class)
+            .shared()
+            .assignedId(Table.LOCATION, SyntheaMappings::getOrganizationId)
+            .column(Organization::getName)
+            .column(organization -> getAddressLine(organization.getAddressFirstRep()))
+            .column(organization -> organization.getAddressFirstRep().getCity())
+            .column(organization -> organization.getAddressFirstRep().getState())
+            .column(organization -> organization.getAddressFirstRep().getPostalCode())
+            .column(organization -> Location.LocationStatus.ACTIVE.toString())
+            .column(organization -> organization.getTypeFirstRep().getCodingFirstRep().getCode())
+            .column(organization -> organization.getTypeFirstRep().getCodingFirstRep().getSystem())
+            .column(organization -> organization.getTypeFirstRep().getCodingFirstRep().getDisplay())
+            .build();
+
+    public static final TableMapping<Encounter> ENCOUNTER_LOCATION = TableMapping.builder(Table.ENCOUNTER_LOCATION, Encounter.class)
+            .assignedId(Table.ENCOUNTER, SyntheaMappings::getId)
+            .column(encounter -> encounter.getPeriod().getStart())
+            .column(encounter -> encounter.getPeriod().getEnd())
+            .assignedId(Table.LOCATION, SyntheaMappings::getServiceProviderId)
+            .build();
+
+    /**
+     * Patients without country, with the address taken from the address text.
+     */
+    public static final TableMapping<Patient> FULL_PATIENT = TableMapping.builder(Table.PATIENT, Patient.class)
+            .assignedId(Table.PATIENT, SyntheaMappings::getId)
+            .column(Patient::getBirthDate)
+            .column(patient -> patient.getNameFirstRep().getFamily())
+            .column(patient -> patient.getNameFirstRep().getGiven().get(0).getValueAsString())
+            .column(patient -> getValue(patient.getGender().toCode(), "female"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getText(), "4200 Fifth Ave"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getCity(), "Pittsburgh"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getState(), "Pennsylvania"))
+            .column(patient -> getValue(patient.getAddressFirstRep().getPostalCode(), "15260"))
+            .build();
+
+    /**
+     * Encounters with fixed type and reason, and without location.
+     */
+    public static final TableMapping<Encounter> FULL_ENCOUNTER = TableMapping.builder(Table.ENCOUNTER, Encounter.class)
+            .assignedId(Table.ENCOUNTER, SyntheaMappings::getId)
+            .column(encounter -> encounter.getPeriod().getStart())
+            .column(encounter -> encounter.getPeriod().getEnd())
+            .referencedId(Table.PATIENT, encounter -> encounter.getSubject().getReference())
+            .column(encounter -> "394656005")
+            .column(encounter -> "Inpatient")
+            .column(encounter -> "126598008")
+            .column(encounter -> "Neoplasm of connective tissues disorder")
+            .build();
+
+    /**
+     * Laboratory observations valued by a quantity. Components are ignored.
+     */
+    public static final TableMapping<Observation> FULL_OBSERVATION = TableMapping.builder(Table.OBSERVATION, Observation.class)
+            .assignedId(Table.OBSERVATION, SyntheaMappings::getId)
+            .column(observation -> observation.getEffectiveDateTimeType().getValue())
+            .referencedId(Table.PATIENT, observation -> observation.getSubject().getReference())
+            .referencedId(Table.ENCOUNTER, observation -> observation.getEncounter().getReference())
+            .column(observation -> observation.getCode().getCodingFirstRep().getCode())
+            .column(observation -> observation.getCode().getCodingFirstRep().getDisplay())
+            .column(observation -> getQuantityValue(getQuantity(observation.getValue())))
+            .column(observation -> getQuantityUnit(getQuantity(observation.getValue())))
+            .column(observation -> getQuantityType(getQuantity(observation.getValue())))
+            .column(observation -> "laboratory")
+            .build();
+
+    /**
+     * Laboratory observations with a row for each quantity, as in
+     * {@link #COMPONENT_OBSERVATION}.
+     */
+    public static final TableMapping<Observation> FULL_COMPONENT_OBSERVATION = TableMapping.builder(Table.OBSERVATION, Observation.class)
+            .elements(SyntheaMappings::getQuantityElements)
+            .assignedElementId(Table.OBSERVATION, SyntheaMappings::getId)
+            .column(observation -> observation.getEffectiveDateTimeType().getValue())
+            .referencedId(Table.PATIENT, observation -> observation.getSubject().getReference())
+            .referencedId(Table.ENCOUNTER, observation -> observation.getEncounter().getReference())
+            .elementColumn(QuantityElement.class, element -> element.coding().getCode())
+            .elementColumn(QuantityElement.class, element -> element.coding().getDisplay())
+            .elementColumn(QuantityElement.class, element -> getQuantityValue(element.quantity()))
+            .elementColumn(QuantityElement.class, element -> getQuantityUnit(element.quantity()))
+            .elementColumn(QuantityElement.class, element -> getQuantityType(element.quantity()))
+            .column(observation -> "laboratory")
+            .build();
+
+    /**
+     * Locations derived from organizations, with the location types assigned
+     * in turn to the organizations of each bundle. The location of an
+     * organization is written once, from the first bundle it is in.
+     */
+    public static final TableMapping<Organization> FULL_LOCATION = TableMapping.builder(Table.LOCATION, Organization.class)
+            .shared()
+            .assignedId(Table.LOCATION, SyntheaMappings::getOrganizationId)
+            .column(Organization::getName)
+            .column(organization -> organization.getAddressFirstRep().getText())
+            .column(organization -> organization.getAddressFirstRep().getCity())
+            .column(organization -> organization.getAddressFirstRep().getState())
+            .column(organization -> organization.getAddressFirstRep().getPostalCode())
+            .column(organization -> Location.LocationStatus.ACTIVE.toString())
+            .indexedColumn((organization, index) -> LOCATION_TYPES[index % LOCATION_TYPES.length][0])
+            .indexedColumn((organization, index) -> LOCATION_TYPES[index % LOCATION_TYPES.length][1])
+            .indexedColumn((organization, index) -> LOCATION_TYPES[index % LOCATION_TYPES.length][2])
+            .build();
+
+    public static final List<TableMapping<?>> FULL = List.of(
+            FULL_PATIENT,
+            FULL_ENCOUNTER,
+            FULL_OBSERVATION,
+            MEDICATION_ADMINISTRATION,
+            FULL_LOCATION);
+
+    public static final List<TableMapping<?>> REDUCED = List.of(
+            PATIENT,
+            ENCOUNTER,
+            OBSERVATION,
+            MEDICATION_ADMINISTRATION,
+            LOCATION,
+            ENCOUNTER_LOCATION);
+
+    public static final List<TableMapping<?>> FULL_WITH_COMPONENTS = List.of(
+            FULL_PATIENT,
+            FULL_ENCOUNTER,
+            FULL_COMPONENT_OBSERVATION,
+            MEDICATION_ADMINISTRATION,
+            FULL_LOCATION);
+
+    public static final List<TableMapping<?>> REDUCED_WITH_COMPONENTS = List.of(
+            PATIENT,
+            ENCOUNTER,
+            COMPONENT_OBSERVATION,
+            MEDICATION_ADMINISTRATION,
+            LOCATION,
+            ENCOUNTER_LOCATION);
+
+    private SyntheaMappings() {
+    }
+
+    static String getId(Resource resource) {
+        return resource.getIdElement().getIdPart();
+    }
+
+    static String getOrganizationId(Organization organization) {
+        return organization.getIdElement().getIdPart().replaceAll("urn:uuid:", "");
+    }
+
+    /**
+     * The service provider is referenced by identifier in older Synthea
+     * bundles and by urn:uuid: in newer ones; both give the organization ID.
+     */
+    static String getServiceProviderId(Encounter encounter) {
+        return encounter.getServiceProvider().getReferenceElement().getIdPart().replaceAll("synthea\\||urn:uuid:", "");
+    }
+
+    private static String getAddressLine(Address address) {
+        return address.getLine().isEmpty()
+                ? "4200 Fifth Ave"
+                : address.getLine().get(0).asStringValue();
+    }
+
+    private static Coding getMedicationCoding(MedicationAdministration medicationAdministration) {
+        return medicationAdministration.getMedicationCodeableConcept().getCodingFirstRep();
+    }
+
+    private static Quantity getQuantity(Type type) {
+        return (type instanceof Quantity quantity) ? quantity : null;
+    }
+
+    private static Quantity getQuantityOrComponentQuantity(Observation observation) {
+        Type type = observation.getValue();
+
+        return getQuantity((type == null) ? observation.getComponentFirstRep().getValue() : type);
+    }
+
+    /**
+     * The rows of an observation with components: one for its own quantity
+     * and one for each component quantity, and at least one.
+     */
+    private static List<QuantityElement> getQuantityElements(Observation observation) {
+        List<QuantityElement> elements = new ArrayList<>(observation.getComponent().size() + 1);
+        if (observation.getValue() instanceof Quantity quantity) {
+            elements.add(new QuantityElement(observation.getCode().getCodingFirstRep(), quantity));
+        }
+        for (Observation.ObservationComponentComponent component : observation.getComponent()) {
+            if (component.getValue() instanceof Quantity quantity) {
+                elements.add(new QuantityElement(component.getCode().getCodingFirstRep(), quantity));
+            }
+        }
+        if (elements.isEmpty()) {
+            elements.add(new QuantityElement(observation.getCode().getCodingFirstRep(), null));
+        }
+
+        return elements;
+    }
+
+    private static Object getQuantityValue(Quantity quantity) {
+        return (quantity == null) ? "" : quantity.getValue();
+    }
+
+    private static String getQuantityUnit(Quantity quantity) {
+        return (quantity == null) ? "" : quantity.getUnit();
+    }
+
+    private static String getQuantityType(Quantity quantity) {
+        return (quantity == null) ? "" : "numeric";
+    }
+
+    /**
+     * A quantity of an observation with the code of the observation or of
+     * its component.
+     */
+    private record QuantityElement(Coding coding, Quantity quantity) {
+
+    }
+
+}
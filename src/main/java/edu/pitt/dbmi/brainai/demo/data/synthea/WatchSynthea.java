@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.mapping.BundleProjection;
+import edu.pitt.dbmi.brainai.demo.data.mapping.MappingEngine;
+import edu.pitt.dbmi.brainai.demo.data.mapping.ProjectionCache;
+import edu.pitt.dbmi.brainai.demo.data.mapping.TableMapping;
+import edu.pitt.dbmi.brainai.demo.data.output.OutputSinks;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriters;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import edu.pitt.dbmi.brainai.demo.data.utils.FileScanner;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a landing directory for new bundle files and maps them, in
+ * micro-batches, into the existing output tables as by
+ * {@link MapFromSynthea}. A file is taken once it has not changed for the
+ * quiet period. A batch is mapped once it has the maximum number of files or
+ * its oldest file has waited for the batch window. The custom IDs stay in
+ * memory between batches, and are saved with the names of the mapped files
+ * after each batch, so a restarted daemon continues where it stopped.
+ *
+ * The rows of a batch and the state recording it are not written
+ * atomically: the rows are appended first. On shutdown the daemon finishes
+ * the current batch and saves its state before exiting, but if the process
+ * is killed between the two, the batch is mapped again on restart and its
+ * rows are appended twice.
+ *
+ * A file that cannot be read, such as a truncated bundle, is logged and
+ * recorded as failed in the state, and the batch goes on without it. A failed
+ * file is mapped again only once it changes.
+ *
+ * Only the directory itself is watched, not its subdirectories.
+ *
+ * Oct 18, 2026 10:05:48 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class WatchSynthea extends AbstractSyntheaDataMapper {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final MappingEngine mappingEngine;
+    private final int maxBatchFiles;
+    private final long batchWindowMillis;
+    private final long quietMillis;
+    private final Path stateFile;
+
+    private final Set<String> mappedFiles = new HashSet<>();
+    private final Set<String> failedFiles = new HashSet<>();
+
+    private volatile boolean stopped;
+    private volatile boolean running;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile long numOfBatches;
+
+    /**
+     * Options, in addition to the output options, which always append:
+     * <pre>
+     * --batch-files=N          maximum number of files per batch (default 100)
+     * --batch-window=MILLIS    longest a file waits for its batch (default 5000)
+     * --quiet-period=MILLIS    time without changes after which a file is complete (default 1000)
+     * --state-file=FILE        custom IDs, with the mapped file names in FILE.files and
+     *                          the failed file names in FILE.failed
+     *                          (default watch-state.ids in the output directory)
+     * --parse-cache=DIR        cache parsed bundles in the directory
+     * --tables=NAMES           comma-separated tables to write, e.g. patients,observations
+     * --split-threshold=N      bundle entries above which a bundle is extracted in parallel (default 0, never)
+     * --observation-components=true|false  a row for each quantity of an observation, including its components (default false)
+     * </pre>
+     *
+     * @param dataDir landing directory of the Synthea bundle files
+     * @param outDir output directory
+     * @param arguments options of the job
+     * @throws IllegalArgumentException if an option is invalid
+     */
+    public WatchSynthea(Path dataDir, Path outDir, Arguments arguments) {
+        super(dataDir, outDir, arguments);
+        List<TableMapping<?>> tableMappings = isObservationComponents(arguments) ? SyntheaMappings.FULL_WITH_COMPONENTS : SyntheaMappings.FULL;
+        this.mappingEngine = new MappingEngine(tableMappings, getTables(arguments, tableMappings), Set.of(), getSplitThreshold(arguments));
+        this.maxBatchFiles = arguments.getInt("batch-files", 100);
+        this.batchWindowMillis = arguments.getLong("batch-window", 5000);
+        this.quietMillis = arguments.getLong("quiet-period", 1000);
+        this.stateFile = Paths.get(arguments.getString("state-file", outDir.resolve("watch-state.ids").toString()));
+        if (maxBatchFiles < 1) {
+            throw new IllegalArgumentException("Option --batch-files must be at least 1.");
+        }
+    }
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Path dataDir = Paths.get(args[0]);
+        Path outDir = Paths.get(args[1]);
+        Arguments arguments = Arguments.parse(args, 2);
+        System.out.println("================================================================================");
+        System.out.println("Watch Synthea Data");
+        System.out.println("--------------------------------------------------------------------------------");
+        System.out.printf("Data Directory: %s%n", dataDir.toString());
+        System.out.printf("Output Directory: %s%n", outDir.toString());
+        System.out.println();
+        WatchSynthea watcher = new WatchSynthea(dataDir, outDir, arguments);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.stopAndWait();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            watcher.map();
+        } catch (IOException exception) {
+            exception.printStackTrace(System.err);
+        }
+        System.out.println("================================================================================");
+    }
+
+    /**
+     * Watch the directory and map the new files until stopped. The files
+     * already in the directory that have not been mapped are mapped first.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void map() throws IOException {
+        running = true;
+        try {
+            watch();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void watch() throws IOException {
+        ProjectionCache cache = ProjectionCache.create(arguments, isObservationComponents(arguments) ? "full-components" : "full", SyntheaMappings.VERSION, mappingEngine);
+        loadState();
+
+        // files waiting to be complete, with the time they last changed
+        Map<Path, Long> pendingFiles = new LinkedHashMap<>();
+        // complete files waiting for their batch, with the time they were complete
+        Map<Path, Long> batchFiles = new LinkedHashMap<>();
+
+        try (WatchService watchService = dataDir.getFileSystem().newWatchService()) {
+            dataDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            addUnmappedFiles(pendingFiles, 0);
+
+            while (!stopped) {
+                WatchKey key;
+                try {
+                    key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while watching for files.");
+                }
+
+                long now = System.currentTimeMillis();
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            addUnmappedFiles(pendingFiles, now);
+                        } else {
+                            Path file = dataDir.resolve((Path) event.context()).normalize();
+                            if (FileScanner.isBundleFile(file) && !mappedFiles.contains(file.getFileName().toString())) {
+                                // a failed file is tried again once it changes
+                                failedFiles.remove(file.getFileName().toString());
+                                batchFiles.remove(file);
+                                pendingFiles.put(file, now);
+                            }
+                        }
+                    }
+                    key.reset();
+                }
+
+                // move the files that stopped changing to the batch
+                for (Iterator<Map.Entry<Path, Long>> iterator = pendingFiles.entrySet().iterator(); iterator.hasNext();) {
+                    Map.Entry<Path, Long> entry = iterator.next();
+                    if (now - entry.getValue() >= quietMillis) {
+                        iterator.remove();
+                        if (Files.isRegularFile(entry.getKey())) {
+                            batchFiles.put(entry.getKey(), now);
+                        }
+                    }
+                }
+
+                if (!batchFiles.isEmpty()
+                        && (batchFiles.size() >= maxBatchFiles || now - batchFiles.values().iterator().next() >= batchWindowMillis)) {
+                    List<Path> batch = new ArrayList<>(maxBatchFiles);
+                    for (Iterator<Path> iterator = batchFiles.keySet().iterator(); iterator.hasNext() && batch.size() < maxBatchFiles;) {
+                        batch.add(iterator.next());
+                        iterator.remove();
+                    }
+                    mapBatch(batch, cache);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop watching after the current batch.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Stop watching after the current batch, and wait until the batch and its
+     * state are written, e.g. from a shutdown hook, which must not return
+     * while rows are being appended.
+     *
+     * @throws InterruptedException
+     */
+    public void stopAndWait() throws InterruptedException {
+        stopped = true;
+        if (running) {
+            finished.await();
+        }
+    }
+
+    /**
+     * @return number of batches mapped so far
+     */
+    public long getNumOfBatches() {
+        return numOfBatches;
+    }
+
+    /**
+     * Map a batch. All the files are projected before any row is appended,
+     * so a file that cannot be read leaves no rows of the batch behind.
+     */
+    private void mapBatch(List<Path> batch, ProjectionCache cache) throws IOException {
+        List<Path> mapped = new ArrayList<>(batch.size());
+        List<Path> failed = new ArrayList<>();
+        List<BundleProjection> projections = new ArrayList<>(batch.size());
+        for (Path file : batch) {
+            try {
+                projections.add(project(file, mappingEngine, cache));
+                mapped.add(file);
+            } catch (IOException | RuntimeException exception) {
+                System.err.printf("Unable to map %s: %s%n", file, exception.getMessage());
+                failed.add(file);
+            }
+        }
+
+        try (TableWriters writers = TableWriters.open(OutputSinks.create(outDir, arguments, true), mappingEngine.getTables())) {
+            for (BundleProjection projection : projections) {
+                mappingEngine.write(projection, idMaps, writers);
+            }
+        }
+
+        mapped.forEach(file -> mappedFiles.add(file.getFileName().toString()));
+        failed.forEach(file -> failedFiles.add(file.getFileName().toString()));
+        saveState(mapped, failed);
+        numOfBatches++;
+        System.out.printf("Mapped batch %d: %d files, %d failed%n", numOfBatches, mapped.size(), failed.size());
+    }
+
+    private void addUnmappedFiles(Map<Path, Long> pendingFiles, long time) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir)) {
+            for (Path file : files) {
+                file = file.normalize();
+                String fileName = file.getFileName().toString();
+                if (Files.isRegularFile(file) && FileScanner.isBundleFile(file) && !mappedFiles.contains(fileName) && !failedFiles.contains(fileName)) {
+                    pendingFiles.putIfAbsent(file, time);
+                }
+            }
+        }
+    }
+
+    private void loadState() throws IOException {
+        if (Files.exists(stateFile)) {
+            idMaps.load(stateFile);
+
+            // the rows of shared tables, such as locations, are in the output
+            // for every ID assigned, so they are not appended again
+            mappingEngine.getSharedTables().forEach(idMaps::markWritten);
+        }
+        if (Files.exists(getMappedFilesFile())) {
+            mappedFiles.addAll(Files.readAllLines(getMappedFilesFile()));
+        }
+        if (Files.exists(getFailedFilesFile())) {
+            failedFiles.addAll(Files.readAllLines(getFailedFilesFile()));
+            failedFiles.removeAll(mappedFiles);
+        }
+    }
+
+    private void saveState(List<Path> mapped, List<Path> failed) throws IOException {
+        idMaps.save(stateFile);
+        List<String> fileNames = mapped.stream().map(file -> file.getFileName().toString()).toList();
+        Files.write(getMappedFilesFile(), fileNames, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (!failed.isEmpty()) {
+            List<String> failedFileNames = failed.stream().map(file -> file.getFileName().toString()).toList();
+            Files.write(getFailedFilesFile(), failedFileNames, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private Path getMappedFilesFile() {
+        return Paths.get(stateFile.toString() + ".files");
+    }
+
+    private Path getFailedFilesFile() {
+        return Paths.get(stateFile.toString() + ".failed");
+    }
+
+}
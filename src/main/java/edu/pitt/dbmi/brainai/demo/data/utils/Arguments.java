@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Optional command-line arguments of the form --name=value.
+ *
+ * Oct 18, 2026 9:14:32 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class Arguments {
+
+    private final Map<String, String> options;
+
+    private Arguments(Map<String, String> options) {
+        this.options = options;
+    }
+
+    /**
+     * Parse the optional arguments.
+     *
+     * @param args the command line arguments
+     * @param offset index of the first optional argument
+     * @return the parsed arguments
+     * @throws IllegalArgumentException if an argument is not of the form
+     * --name=value or --name
+     */
+    public static Arguments parse(String[] args, int offset) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = offset; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--") || arg.length() == 2) {
+                throw new IllegalArgumentException(String.format("Invalid argument %s.", arg));
+            }
+
+            int index = arg.indexOf('=');
+            if (index < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, index), arg.substring(index + 1));
+            }
+        }
+
+        return new Arguments(options);
+    }
+
+    public boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    public String getString(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        try {
+            return (value == null) ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(String.format("Invalid value %s for --%s.", value, name), exception);
+        }
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = options.get(name);
+        try {
+            return (value == null) ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException(String.format("Invalid value %s for --%s.", value, name), exception);
+        }
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = options.get(name);
+
+        return (value == null) ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Appends decimals to a buffer exactly as {@link BigDecimal#toString()} would
+ * write them, without creating a string. Decimals of up to 18 digits in plain
+ * notation are written digit by digit from their unscaled long value; the
+ * others go through toString(). Synthea writes most quantities with 16 or 17
+ * digits, such as 173.9018914060253.
+ *
+ * Oct 19, 2026 1:48:36 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class DecimalFormatter {
+
+    private static final int MAX_DOUBLE_PRECISION = 15;
+    private static final int MAX_PRECISION = 18;
+    private static final int MAX_SCALE = 18;
+
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_SCALE + 1];
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_SCALE + 1];
+
+    static {
+        LONG_POWERS_OF_TEN[0] = 1;
+        DOUBLE_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10;
+            DOUBLE_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i];
+        }
+    }
+
+    private DecimalFormatter() {
+    }
+
+    /**
+     * Append a decimal in the format of {@link BigDecimal#toString()}.
+     *
+     * @param decimal the decimal
+     * @param buffer where the decimal is appended
+     * @return the buffer
+     */
+    public static StringBuilder append(BigDecimal decimal, StringBuilder buffer) {
+        int scale = decimal.scale();
+        int precision = decimal.precision();
+
+        // toString() uses scientific notation for negative scales and for
+        // adjusted exponents below -6
+        if (scale < 0 || scale > MAX_SCALE || precision > MAX_PRECISION || precision - 1 - scale < -6) {
+            return buffer.append(decimal.toString());
+        }
+
+        // an unscaled value of at most 15 digits is recovered exactly from the
+        // double, which is the unscaled value divided by a power of ten, with
+        // an error far below one half; a longer one, of at most 18 digits,
+        // still fits in a long
+        long unscaledValue = (precision <= MAX_DOUBLE_PRECISION)
+                ? Math.abs(Math.round(decimal.doubleValue() * DOUBLE_POWERS_OF_TEN[scale]))
+                : Math.abs(decimal.unscaledValue().longValue());
+        if (decimal.signum() < 0) {
+            buffer.append('-');
+        }
+        if (scale == 0) {
+            return buffer.append(unscaledValue);
+        }
+
+        long fraction = unscaledValue % LONG_POWERS_OF_TEN[scale];
+        buffer.append(unscaledValue / LONG_POWERS_OF_TEN[scale]).append('.');
+        for (int i = getNumOfDigits(fraction); i < scale; i++) {
+            buffer.append('0');
+        }
+
+        return buffer.append(fraction);
+    }
+
+    private static int getNumOfDigits(long value) {
+        int numOfDigits = 1;
+        while (numOfDigits < LONG_POWERS_OF_TEN.length && value >= LONG_POWERS_OF_TEN[numOfDigits]) {
+            numOfDigits++;
+        }
+
+        return numOfDigits;
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans a directory for bundle files (*.json and *.ndjson) on a background
+ * thread, so files can be processed while the directory is still being
+ * walked. The scanned files are handed out either in scan order or largest
+ * first among the files found so far. At most a fixed number of scanned files
+ * wait to be taken, which bounds the memory used on very large directories.
+ *
+ * Oct 18, 2026 6:20:14 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class FileScanner implements Closeable {
+
+    private static final ScannedFile END_OF_FILES = new ScannedFile(null, -1, Long.MAX_VALUE);
+
+    private final Path dir;
+    private final Filter filter;
+    private final BlockingQueue<ScannedFile> queue;
+    private final Semaphore capacity;
+    private final Thread thread;
+
+    private final AtomicLong numOfFiles = new AtomicLong();
+    private final AtomicLong numOfBytes = new AtomicLong();
+
+    private volatile boolean complete;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * A scanned file.
+     *
+     * @param file path of the file
+     * @param size file size in bytes
+     * @param sequence position of the file in scan order, starting at 0
+     */
+    public record ScannedFile(Path file, long size, long sequence) {
+
+    }
+
+    /**
+     * Decides, in scan order, whether a file is handed out.
+     */
+    @FunctionalInterface
+    public interface Filter {
+
+        boolean accept(Path file) throws IOException;
+
+    }
+
+    /**
+     * @param dir directory to scan, including its subdirectories
+     * @param largestFirst hand out the largest file found so far instead of
+     * the files in scan order
+     * @param capacity maximum number of scanned files waiting to be taken
+     * @param filter decides whether a file is handed out, or null to hand
+     * out all bundle files
+     */
+    public FileScanner(Path dir, boolean largestFirst, int capacity, Filter filter) {
+        this.dir = dir;
+        this.filter = filter;
+        this.queue = largestFirst
+                ? new PriorityBlockingQueue<>(1024, Comparator.comparingLong(ScannedFile::size).reversed())
+                : new LinkedBlockingQueue<>();
+        this.capacity = new Semaphore(capacity);
+        this.thread = new Thread(this::scan, "file-scanner");
+        this.thread.setDaemon(true);
+    }
+
+    public static boolean isBundleFile(Path file) {
+        String name = file.getFileName().toString();
+
+        return name.endsWith(".json") || name.endsWith(".ndjson");
+    }
+
+    public FileScanner start() {
+        thread.start();
+
+        return this;
+    }
+
+    /**
+     * Take the next scanned file, waiting for the scan if necessary.
+     *
+     * @return the next file, or null if all the files have been taken
+     * @throws IOException if the directory cannot be scanned
+     */
+    public ScannedFile take() throws IOException {
+        ScannedFile scannedFile;
+        try {
+            scannedFile = queue.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the file scan.");
+        }
+
+        if (scannedFile == END_OF_FILES) {
+            // leave the end marker for the other takers
+            queue.add(END_OF_FILES);
+            if (failure != null) {
+                throw new IOException(String.format("Unable to scan %s.", dir), failure);
+            }
+
+            return null;
+        }
+        capacity.release();
+
+        return scannedFile;
+    }
+
+    /**
+     * @return number of files found so far
+     */
+    public long getNumOfFiles() {
+        return numOfFiles.get();
+    }
+
+    /**
+     * @return total size of the files found so far
+     */
+    public long getNumOfBytes() {
+        return numOfBytes.get();
+    }
+
+    /**
+     * @return true if the whole directory has been scanned
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void scan() {
+        AtomicLong sequence = new AtomicLong();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (closed) {
+                        return FileVisitResult.TERMINATE;
+                    }
+
+                    if (attrs.isRegularFile() && isBundleFile(file) && (filter == null || filter.accept(file.normalize()))) {
+                        try {
+                            capacity.acquire();
+                        } catch (InterruptedException exception) {
+                            return FileVisitResult.TERMINATE;
+                        }
+                        queue.add(new ScannedFile(file.normalize(), attrs.size(), sequence.getAndIncrement()));
+                        numOfFiles.incrementAndGet();
+                        numOfBytes.addAndGet(attrs.size());
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | RuntimeException exception) {
+            failure = (exception instanceof IOException ioException) ? ioException : new IOException(exception);
+        } finally {
+            complete = true;
+            queue.add(END_OF_FILES);
+        }
+    }
+
+}
@@ -19,9 +19,13 @@
 package edu.pitt.dbmi.brainai.demo.data.utils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -34,9 +38,37 @@ import java.util.stream.Stream;
  */
 public final class FileUtils {
 
+    /**
+     * Maximum number of scanned files waiting to be processed.
+     */
+    private static final int SCAN_CAPACITY = 10000;
+
     private FileUtils() {
     }
 
+    /**
+     * Start scanning the directory for bundle files (*.json and *.ndjson).
+     *
+     * @param dir directory to scan
+     * @param largestFirst hand out the largest files found so far first,
+     * instead of in scan order
+     * @param filter decides, in scan order, whether a file is handed out, or
+     * null for all bundle files
+     * @return the started scanner
+     */
+    public static FileScanner scanBundleFiles(Path dir, boolean largestFirst, FileScanner.Filter filter) {
+        return new FileScanner(dir, largestFirst, SCAN_CAPACITY, filter).start();
+    }
+
+    public static List<Path> listBundleFiles(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.map(Path::normalize)
+                    .filter(Files::isRegularFile)
+                    .filter(FileScanner::isBundleFile)
+                    .collect(Collectors.toList());
+        }
+    }
+
     public static List<Path> listFiles(Path dir) throws IOException {
         try (Stream<Path> stream = java.nio.file.Files.walk(dir)) {
             return stream.map(Path::normalize)
@@ -46,6 +78,32 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * Compute the SHA-256 hash of the file content.
+     *
+     * @param file the file
+     * @return the hash as a lowercase hex string
+     * @throws IOException
+     */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int numOfBytes;
+            while ((numOfBytes = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, numOfBytes);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     public static Path createSubDir(Path dir, String name) throws IOException {
         return Files.createDirectory(Paths.get(dir.toString(), name));
     }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.FileScanner.ScannedFile;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Processes scanned files on a pool of worker threads, and passes the results
+ * to a consumer on the calling thread. The consumer is never called
+ * concurrently, so it can safely update shared state such as ID maps. With a
+ * single thread, the files are processed and consumed in the order they are
+ * taken from the scanner.
+ *
+ * Oct 18, 2026 6:48:37 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class ParallelFileProcessor {
+
+    private ParallelFileProcessor() {
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+
+        T process(ScannedFile file) throws IOException;
+
+    }
+
+    @FunctionalInterface
+    public interface Consumer<T> {
+
+        void accept(ScannedFile file, T result) throws IOException;
+
+    }
+
+    private record Result<T>(ScannedFile file, T value, Throwable failure, boolean done) {
+
+    }
+
+    /**
+     * Process all the files of the scanner.
+     *
+     * @param <T> result type
+     * @param scanner started file scanner, closed by the caller
+     * @param numOfThreads number of worker threads
+     * @param task processes a file on a worker thread
+     * @param consumer consumes a result on the calling thread
+     * @throws IOException the first failure of the scan, a task or the
+     * consumer, after which the remaining files are not processed
+     */
+    public static <T> void run(FileScanner scanner, int numOfThreads, Task<T> task, Consumer<T> consumer) throws IOException {
+        if (numOfThreads <= 1) {
+            ScannedFile file;
+            while ((file = scanner.take()) != null) {
+                consumer.accept(file, task.process(file));
+            }
+
+            return;
+        }
+
+        BlockingQueue<Result<T>> results = new ArrayBlockingQueue<>(numOfThreads * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads, runnable -> {
+            Thread thread = new Thread(runnable, "file-processor");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        try {
+            for (int i = 0; i < numOfThreads; i++) {
+                executor.execute(() -> {
+                    try {
+                        ScannedFile file;
+                        while ((file = scanner.take()) != null) {
+                            results.put(new Result<>(file, task.process(file), null, false));
+                        }
+                        results.put(new Result<>(null, null, null, true));
+                    } catch (Throwable throwable) {
+                        try {
+                            results.put(new Result<>(null, null, throwable, true));
+                        } catch (InterruptedException exception) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+
+            int numOfRunningThreads = numOfThreads;
+            while (numOfRunningThreads > 0) {
+                Result<T> result = results.take();
+                if (result.failure() != null) {
+                    if (result.failure() instanceof IOException exception) {
+                        throw exception;
+                    }
+                    throw new IOException("Unable to process file.", result.failure());
+                } else if (result.done()) {
+                    numOfRunningThreads--;
+                } else {
+                    consumer.accept(result.file(), result.value());
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing files.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
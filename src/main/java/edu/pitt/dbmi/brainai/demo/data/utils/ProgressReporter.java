@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Periodically reports the progress of a run on stderr or in a status file:
+ * files done out of the files found, bundles, rows per table and megabytes
+ * read and written per second, heap in use, and the estimated time left. The
+ * counters are striped, so updating them from the mapping threads adds no
+ * contention.
+ *
+ * <pre>
+ * --progress-interval=N     seconds between reports, 0 to turn off (default 0)
+ * --status-file=FILE        write the reports to the file instead of stderr
+ * </pre>
+ *
+ * Reporting is off unless an interval is given, so a run writes nothing
+ * extra to stderr by default.
+ *
+ * Oct 18, 2026 7:26:45 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ProgressReporter implements Closeable {
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final Path outDir;
+    private final Path statusFile;
+    private final PrintStream out;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder numOfFilesDone = new LongAdder();
+    private final LongAdder numOfBytesRead = new LongAdder();
+    private final LongAdder[] numOfRows = new LongAdder[Table.values().length];
+
+    private volatile FileScanner scanner;
+
+    private final long startTime = System.nanoTime();
+    private long lastTime = startTime;
+    private long lastNumOfFilesDone;
+    private long lastNumOfBytesRead;
+    private long lastNumOfBytesWritten;
+    private final long[] lastNumOfRows = new long[Table.values().length];
+
+    /**
+     * @param outDir output directory, whose size is reported as the bytes
+     * written
+     * @param intervalSeconds seconds between reports, or 0 to never report
+     * @param statusFile file the reports are written to, or null for the
+     * print stream
+     * @param out print stream the reports are printed to
+     */
+    public ProgressReporter(Path outDir, long intervalSeconds, Path statusFile, PrintStream out) {
+        this.outDir = outDir;
+        this.statusFile = statusFile;
+        this.out = out;
+        for (int i = 0; i < numOfRows.length; i++) {
+            numOfRows[i] = new LongAdder();
+        }
+
+        if (intervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "progress-reporter");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public static ProgressReporter create(Path outDir, Arguments arguments) {
+        return new ProgressReporter(
+                outDir,
+                arguments.getLong("progress-interval", 0),
+                arguments.has("status-file") ? Paths.get(arguments.getString("status-file", null)) : null,
+                System.err);
+    }
+
+    /**
+     * Track the scanner for the number of files and bytes to process.
+     *
+     * @param scanner the file scanner
+     */
+    public void track(FileScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    public void fileDone(long size) {
+        numOfFilesDone.increment();
+        numOfBytesRead.add(size);
+    }
+
+    public void rowWritten(Table table) {
+        numOfRows[table.ordinal()].increment();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            report();
+        }
+    }
+
+    private synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max((now - lastTime) / 1e9, 1e-9);
+        double totalSeconds = Math.max((now - startTime) / 1e9, 1e-9);
+
+        long filesDone = numOfFilesDone.sum();
+        long bytesRead = numOfBytesRead.sum();
+        long bytesWritten = getOutputSize();
+        FileScanner fileScanner = scanner;
+        long numOfFiles = (fileScanner == null) ? 0 : fileScanner.getNumOfFiles();
+        boolean scanComplete = fileScanner != null && fileScanner.isComplete();
+
+        StringBuilder rowRates = new StringBuilder();
+        for (Table table : Table.values()) {
+            long rows = numOfRows[table.ordinal()].sum();
+            if (rows == 0) {
+                // table not written, or not in the layout of the output
+                continue;
+            }
+            rowRates.append(String.format(" %s=%.1f", table.getName(), (rows - lastNumOfRows[table.ordinal()]) / seconds));
+            lastNumOfRows[table.ordinal()] = rows;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        List<String> report = List.of(
+                String.format("files: %d/%d%s", filesDone, numOfFiles, scanComplete ? "" : "+"),
+                String.format("bundles/s: %.1f", (filesDone - lastNumOfFilesDone) / seconds),
+                String.format("rows/s:%s", rowRates),
+                String.format("read MB/s: %.2f", (bytesRead - lastNumOfBytesRead) / MEGABYTE / seconds),
+                String.format("written MB/s: %.2f", (bytesWritten - lastNumOfBytesWritten) / MEGABYTE / seconds),
+                String.format("heap MB: %.1f/%.1f", (runtime.totalMemory() - runtime.freeMemory()) / MEGABYTE, runtime.maxMemory() / MEGABYTE),
+                String.format("eta: %s", getEta(bytesRead, totalSeconds, fileScanner, scanComplete)));
+
+        lastTime = now;
+        lastNumOfFilesDone = filesDone;
+        lastNumOfBytesRead = bytesRead;
+        lastNumOfBytesWritten = bytesWritten;
+
+        if (statusFile == null) {
+            out.printf("Progress - %s%n", String.join(", ", report));
+        } else {
+            try {
+                Path tempFile = statusFile.resolveSibling(statusFile.getFileName() + ".tmp");
+                Files.write(tempFile, report);
+                Files.move(tempFile, statusFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException exception) {
+                exception.printStackTrace(System.err);
+            }
+        }
+    }
+
+    /**
+     * The time left at the average read rate so far, known once the whole
+     * directory has been scanned.
+     */
+    private static String getEta(long bytesRead, double totalSeconds, FileScanner scanner, boolean scanComplete) {
+        if (!scanComplete || bytesRead == 0) {
+            return "unknown";
+        }
+
+        long secondsLeft = (long) ((scanner.getNumOfBytes() - bytesRead) / (bytesRead / totalSeconds));
+
+        return String.format("%02d:%02d:%02d", secondsLeft / 3600, (secondsLeft / 60) % 60, secondsLeft % 60);
+    }
+
+    private long getOutputSize() {
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(outDir)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    size += Files.size(file);
+                }
+            }
+        } catch (IOException exception) {
+            // the output directory may not exist yet or a file may be gone
+        }
+
+        return size;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Binary encoding of rows of strings, dates and decimals.
+ *
+ * Oct 18, 2026 5:02:13 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public final class RowCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte DATE = 2;
+    private static final byte DECIMAL = 3;
+
+    private RowCodec() {
+    }
+
+    /**
+     * Write a row.
+     *
+     * @param out where the row is written
+     * @param row values, each of which must be null, a String, a Date or a
+     * BigDecimal
+     * @throws IOException
+     * @throws IllegalArgumentException if a value has another type
+     */
+    public static void writeRow(DataOutput out, Object[] row) throws IOException {
+        out.writeShort(row.length);
+        for (Object value : row) {
+            writeValue(out, value);
+        }
+    }
+
+    public static Object[] readRow(DataInput in) throws IOException {
+        Object[] row = new Object[in.readUnsignedShort()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = readValue(in);
+        }
+
+        return row;
+    }
+
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            writeString(out, string);
+        } else if (value instanceof Date date) {
+            out.writeByte(DATE);
+            out.writeLong(date.getTime());
+        } else if (value instanceof BigDecimal decimal) {
+            byte[] unscaledValue = decimal.unscaledValue().toByteArray();
+            out.writeByte(DECIMAL);
+            out.writeInt(decimal.scale());
+            out.writeByte(unscaledValue.length);
+            out.write(unscaledValue);
+        } else {
+            throw new IllegalArgumentException(String.format("Unable to encode value of type %s.", value.getClass().getName()));
+        }
+    }
+
+    public static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case DATE:
+                return new Date(in.readLong());
+            case DECIMAL:
+                int scale = in.readInt();
+                byte[] unscaledValue = new byte[in.readUnsignedByte()];
+                in.readFully(unscaledValue);
+                return new BigDecimal(new BigInteger(unscaledValue), scale);
+            default:
+                throw new IOException(String.format("Unknown value type %d.", type));
+        }
+    }
+
+    /**
+     * Write a string of any length as UTF-8, unlike
+     * {@link DataOutput#writeUTF(String)} which is limited to 64KB.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.verify;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Verify that every patient_id, encounter_id and location_id in the output
+ * tables refers to an existing row. Each table is streamed once, in an order
+ * where referenced tables come before the tables referencing them. The custom
+ * IDs seen so far are kept in bitsets indexed by the numeric part of the ID,
+ * e.g. 12 for enc_12.
+ *
+ * Oct 18, 2026 10:41:08 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ReferentialIntegrityVerifier {
+
+    /**
+     * Referenced tables are verified first.
+     */
+    private static final Table[] TABLE_ORDER = {
+        Table.PATIENT,
+        Table.LOCATION,
+        Table.ENCOUNTER,
+        Table.OBSERVATION_CODE,
+        Table.MEDICATION,
+        Table.OBSERVATION,
+        Table.MEDICATION_ADMINISTRATION,
+        Table.ENCOUNTER_LOCATION
+    };
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Longest field value checked. Longer values are never valid custom IDs.
+     */
+    private static final int MAX_FIELD_LENGTH = 64;
+
+    private final Path outDir;
+    private final int maxReports;
+    private final PrintStream out;
+
+    private final Map<Table, BitSet> tableIds = new EnumMap<>(Table.class);
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] field = new byte[MAX_FIELD_LENGTH];
+
+    private long numOfViolations;
+
+    /**
+     * @param outDir directory of the output tables
+     * @param maxReports maximum number of violations reported per table
+     * @param out where the violations are reported
+     */
+    public ReferentialIntegrityVerifier(Path outDir, int maxReports, PrintStream out) {
+        this.outDir = outDir;
+        this.maxReports = maxReports;
+        this.out = out;
+    }
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Path outDir = Paths.get(args[0]);
+        Arguments arguments = Arguments.parse(args, 1);
+        System.out.println("================================================================================");
+        System.out.println("Verify Referential Integrity");
+        System.out.println("--------------------------------------------------------------------------------");
+        System.out.printf("Output Directory: %s%n", outDir.toString());
+        System.out.println();
+
+        long violations = -1;
+        try {
+            violations = (new ReferentialIntegrityVerifier(outDir, arguments.getInt("max-reports", 100), System.out)).verify();
+            System.out.printf("Violations: %d%n", violations);
+        } catch (IOException exception) {
+            exception.printStackTrace(System.err);
+        }
+        System.out.println("================================================================================");
+
+        if (violations != 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Verify the output tables.
+     *
+     * @return number of violations found
+     * @throws IOException
+     */
+    public long verify() throws IOException {
+        numOfViolations = 0;
+        tableIds.clear();
+        for (Table table : TABLE_ORDER) {
+            Path file = outDir.resolve(table.getFileName());
+            if (Files.isRegularFile(file)) {
+                verify(table, file);
+            }
+        }
+
+        return numOfViolations;
+    }
+
+    private void verify(Table table, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            TableChecker checker = new TableChecker(table, file.getFileName().toString(), readHeaders(in));
+
+            long lineNumber = 2;
+            int column = 0;
+            int fieldLength = 0;
+            int numOfBytes;
+            while ((numOfBytes = in.read(buffer)) > 0) {
+                for (int i = 0; i < numOfBytes; i++) {
+                    byte b = buffer[i];
+                    if (b == '\t' || b == '\n') {
+                        checker.checkField(column, fieldLength, lineNumber);
+                        fieldLength = 0;
+                        if (b == '\t') {
+                            column++;
+                        } else {
+                            column = 0;
+                            lineNumber++;
+                        }
+                    } else if (b != '\r' && checker.isChecked(column)) {
+                        if (fieldLength < MAX_FIELD_LENGTH) {
+                            field[fieldLength] = b;
+                        }
+                        fieldLength++;
+                    }
+                }
+            }
+
+            // last line without line terminator
+            if (column > 0 || fieldLength > 0) {
+                checker.checkField(column, fieldLength, lineNumber);
+            }
+
+            out.printf("%s: %d rows, %d violations%n", checker.fileName, lineNumber - 2, checker.numOfViolations);
+        }
+    }
+
+    private String[] readHeaders(InputStream in) throws IOException {
+        StringBuilder header = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                header.append((char) b);
+            }
+        }
+
+        return header.toString().split("\t", -1);
+    }
+
+    /**
+     * Parse the numeric part of a custom ID held in the field buffer.
+     *
+     * @return the numeric part, or -1 if the field is not a custom ID with the
+     * given prefix
+     */
+    private int parseId(byte[] prefix, int fieldLength) {
+        if (fieldLength <= prefix.length || fieldLength > MAX_FIELD_LENGTH || fieldLength - prefix.length > 9) {
+            return -1;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (field[i] != prefix[i]) {
+                return -1;
+            }
+        }
+
+        int id = 0;
+        for (int i = prefix.length; i < fieldLength; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            id = id * 10 + digit;
+        }
+
+        return id;
+    }
+
+    /**
+     * Column checks of a single table.
+     */
+    private class TableChecker {
+
+        private final Table table;
+        private final String fileName;
+        private final String[] headers;
+
+        /**
+         * Table referenced by each column, or null if the column is not
+         * checked. The table itself is referenced by its primary key.
+         */
+        private final Table[] columnTables;
+        private final byte[][] columnPrefixes;
+        private final int lastCheckedColumn;
+
+        private final BitSet ids;
+
+        private long numOfViolations;
+
+        public TableChecker(Table table, String fileName, String[] headers) {
+            this.table = table;
+            this.fileName = fileName;
+            this.headers = headers;
+            this.columnTables = new Table[headers.length];
+            this.columnPrefixes = new byte[headers.length][];
+
+            int last = -1;
+            for (int i = 0; i < headers.length; i++) {
+                Table columnTable = ("id".equals(headers[i]) && table.getIdPrefix() != null)
+                        ? table
+                        : Table.getReferencedTable(headers[i]);
+                if (columnTable != null && (columnTable == table || tableIds.containsKey(columnTable))) {
+                    columnTables[i] = columnTable;
+                    columnPrefixes[i] = columnTable.getIdPrefix().getBytes(StandardCharsets.US_ASCII);
+                    last = i;
+                } else if (columnTable != null) {
+                    out.printf("%s: skipping %s since %s was not found%n", fileName, headers[i], columnTable.getFileName());
+                }
+            }
+            this.lastCheckedColumn = last;
+
+            this.ids = (columnTables.length > 0 && columnTables[0] == table) ? new BitSet() : null;
+            if (ids != null) {
+                tableIds.put(table, ids);
+            }
+        }
+
+        public boolean isChecked(int column) {
+            return column <= lastCheckedColumn && columnTables[column] != null;
+        }
+
+        public void checkField(int column, int fieldLength, long lineNumber) {
+            if (!isChecked(column)) {
+                return;
+            }
+
+            Table columnTable = columnTables[column];
+            int id = parseId(columnPrefixes[column], fieldLength);
+            if (columnTable == table) {
+                if (id < 0) {
+                    report(lineNumber, column, fieldLength, "is not a valid ID");
+                } else if (ids.get(id)) {
+                    report(lineNumber, column, fieldLength, "is a duplicate ID");
+                } else {
+                    ids.set(id);
+                }
+            } else if (fieldLength > 0) {
+                // empty references are allowed
+                if (id < 0) {
+                    report(lineNumber, column, fieldLength, "is not a valid ID");
+                } else if (!tableIds.get(columnTable).get(id)) {
+                    report(lineNumber, column, fieldLength, "is not found in " + columnTable.getFileName());
+                }
+            }
+        }
+
+        private void report(long lineNumber, int column, int fieldLength, String problem) {
+            numOfViolations++;
+            ReferentialIntegrityVerifier.this.numOfViolations++;
+            if (numOfViolations <= maxReports) {
+                String value = new String(field, 0, Math.min(fieldLength, MAX_FIELD_LENGTH), StandardCharsets.UTF_8);
+                out.printf("%s:%d: %s '%s' %s%n", fileName, lineNumber, headers[column], value, problem);
+            }
+        }
+
+    }
+
+}
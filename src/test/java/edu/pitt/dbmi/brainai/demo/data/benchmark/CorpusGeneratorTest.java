@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.benchmark;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 19, 2026 12:31:06 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CorpusGeneratorTest {
+
+    @TempDir
+    public Path tempDir;
+
+    /**
+     * Test of generate method, of class CorpusGenerator. Each copy has its
+     * own patient UUIDs and keeps the UUIDs of the shared organizations.
+     *
+     * @throws IOException
+     * @throws URISyntaxException
+     */
+    @Test
+    public void testGenerate() throws IOException, URISyntaxException {
+        Path templateDir = Paths.get(CorpusGeneratorTest.class.getResource("/data/synthea").toURI());
+        Path template = templateDir.resolve("Aaron697_Brekke496_2fa15bc7-8866-461a-9000-f739e425860a.json");
+        String organizationUuid = "8ad64ecf-c817-3753-bee7-006a8e662e06";
+        Assertions.assertTrue(Files.readString(template).contains(organizationUuid));
+
+        CorpusGenerator generator = new CorpusGenerator(templateDir, 1);
+        long numOfBytes = generator.generate(tempDir, 20);
+
+        List<Path> files = FileUtils.listBundleFiles(tempDir);
+        Assertions.assertEquals(20, files.size());
+        Set<String> fileNames = new HashSet<>();
+        long size = 0;
+        for (Path file : files) {
+            fileNames.add(file.getFileName().toString());
+            size += Files.size(file);
+
+            String bundle = Files.readString(file);
+            Assertions.assertFalse(bundle.contains("2fa15bc7-8866-461a-9000-f739e425860a"));
+            if (file.getFileName().toString().startsWith("Aaron697_Brekke496_")) {
+                Assertions.assertTrue(bundle.contains(organizationUuid));
+            }
+        }
+        Assertions.assertEquals(20, fileNames.size());
+        Assertions.assertEquals(size, numOfBytes);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * Oct 19, 2026 9:12:40 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class DeltaFilterTest {
+
+    private static final long DAY = 86400000L;
+
+    /**
+     * Test of filter method, of class DeltaFilter, with an observation after
+     * the watermark whose encounter ended before it. The encounter is kept so
+     * the observation has an encounter ID on a first run without saved IDs.
+     */
+    @Test
+    public void testFilterKeepsReferencedEncounter() {
+        Date watermark = new Date(10 * DAY);
+
+        BundleProjection projection = new BundleProjection();
+        projection.add(Table.PATIENT, row(Table.PATIENT, "id", "patient-1"));
+        projection.add(Table.ENCOUNTER, row(Table.ENCOUNTER, "id", "encounter-old", "start", new Date(DAY), "end", new Date(2 * DAY), "patient_id", "patient-1"));
+        projection.add(Table.ENCOUNTER, row(Table.ENCOUNTER, "id", "encounter-unreferenced", "start", new Date(3 * DAY), "end", new Date(4 * DAY), "patient_id", "patient-1"));
+        projection.add(Table.OBSERVATION, row(Table.OBSERVATION, "id", "observation-new", "effective", new Date(11 * DAY), "patient_id", "patient-1", "encounter_id", "encounter-old"));
+        projection.add(Table.OBSERVATION, row(Table.OBSERVATION, "id", "observation-old", "effective", new Date(3 * DAY), "patient_id", "patient-1", "encounter_id", "encounter-unreferenced"));
+
+        BundleProjection delta = new DeltaFilter(null, watermark).filter(projection);
+
+        Assertions.assertEquals(List.of("observation-new"), getIds(delta, Table.OBSERVATION));
+        Assertions.assertEquals(List.of("encounter-old"), getIds(delta, Table.ENCOUNTER));
+        Assertions.assertEquals(List.of("patient-1"), getIds(delta, Table.PATIENT));
+
+        // the custom encounter ID of the observation resolves
+        IdMaps ids = new IdMaps();
+        delta.getRows(Table.ENCOUNTER).forEach(row -> ids.assign(Table.ENCOUNTER, (String) row[0]));
+        Object[] observation = delta.getRows(Table.OBSERVATION).get(0);
+        Assertions.assertNotNull(ids.lookup(Table.ENCOUNTER, (String) observation[Table.OBSERVATION.getColumnIndex("encounter_id")]));
+    }
+
+    private static Object[] row(Table table, Object... values) {
+        Object[] row = new Object[table.getHeaders().length];
+        for (int i = 0; i < values.length; i += 2) {
+            row[table.getColumnIndex((String) values[i])] = values[i + 1];
+        }
+
+        return row;
+    }
+
+    private static List<Object> getIds(BundleProjection projection, Table table) {
+        return projection.getRows(table).stream().map(row -> row[0]).toList();
+    }
+
+}
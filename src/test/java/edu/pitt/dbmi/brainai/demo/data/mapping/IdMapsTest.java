@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.mapping;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 19, 2026 3:02:41 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class IdMapsTest {
+
+    @TempDir
+    public Path tempDir;
+
+    /**
+     * Test of save and load methods, of class IdMaps. The IDs of referenced
+     * tables are kept; only the numbering of the other tables is.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        IdMaps ids = new IdMaps();
+        ids.assign(Table.PATIENT, "p1");
+        ids.assign(Table.LOCATION, "o1");
+        ids.assign(Table.OBSERVATION, "a");
+        ids.assign(Table.OBSERVATION, "b");
+        ids.assign(Table.OBSERVATION, "c");
+
+        Path file = tempDir.resolve("state.ids");
+        Files.writeString(file, "previous state");
+        ids.save(file);
+        ids.save(file);
+
+        List<String> lines = Files.readAllLines(file);
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertTrue(lines.contains("observations\t\tobs_3"));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            Assertions.assertEquals(List.of(file), files.toList());
+        }
+
+        IdMaps loaded = new IdMaps();
+        loaded.load(file);
+        Assertions.assertEquals("pat_1", loaded.lookup(Table.PATIENT, "p1"));
+        Assertions.assertEquals("location_1", loaded.lookup(Table.LOCATION, "o1"));
+        Assertions.assertNull(loaded.lookup(Table.OBSERVATION, "a"));
+        Assertions.assertEquals("obs_4", loaded.assign(Table.OBSERVATION, "d"));
+
+        // the numbering is kept even if no new ID is assigned
+        loaded.save(file);
+        IdMaps reloaded = new IdMaps();
+        reloaded.load(file);
+        Assertions.assertEquals("obs_5", reloaded.assign(Table.OBSERVATION, "e"));
+    }
+
+}
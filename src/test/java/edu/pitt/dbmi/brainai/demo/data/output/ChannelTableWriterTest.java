@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 18, 2026 11:24:50 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ChannelTableWriterTest {
+
+    @TempDir
+    public Path tempDir;
+
+    /**
+     * Test of write method, of class ChannelTableWriter, with non-ASCII
+     * characters spanning buffer flushes and a preallocated file. The file
+     * has the same lines as written by TsvTableWriter.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testWrite() throws IOException {
+        List<List<?>> rows = List.of(
+                Arrays.asList("pat_1", new Date(0), "Ib\u00E1\u00F1ez", "Zo\u00EB", "female", "1 Stra\u00DFe \u20AC", "Pittsburgh", "Pennsylvania", "15260", "US"),
+                Arrays.asList("pat_2", new Date(86400000L), "\uD83D\uDE00 smile", null, "male"),
+                Arrays.asList("pat_3", new Date(172800000L), "Lone \uD800 surrogate"));
+
+        StringWriter expected = new StringWriter();
+        try (TsvTableWriter writer = new TsvTableWriter(new PrintWriter(expected), Table.PATIENT)) {
+            rows.forEach(writer::write);
+        }
+
+        Path file = tempDir.resolve(Table.PATIENT.getFileName());
+        ChannelOutputSink sink = new ChannelOutputSink(tempDir, false, 64,
+                ChannelOutputSink.parsePreallocations("patients:1"), ChannelOutputSink.FsyncPolicy.CLOSE);
+        try (TableWriter writer = sink.open(Table.PATIENT)) {
+            rows.forEach(writer::write);
+        }
+
+        // the preallocated file is truncated to what was written
+        assertEquals(expected.toString().replace("\uD800", "?"), Files.readString(file, StandardCharsets.UTF_8));
+
+        // a missing value is an empty column
+        assertEquals("pat_2\t01/02/1970\t\uD83D\uDE00 smile\t\tmale", Files.readAllLines(file, StandardCharsets.UTF_8).get(2));
+    }
+
+    /**
+     * Test that ChannelOutputSink and TsvOutputSink write byte-identical
+     * files with non-ASCII content.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSameAsTsvOutputSink() throws IOException {
+        List<List<?>> rows = List.of(
+                Arrays.asList("pat_1", new Date(0), "Ib\u00E1\u00F1ez", "Zo\u00EB", "female", "1 Stra\u00DFe \u20AC", "Pittsburgh", "Pennsylvania", "15260", "US"),
+                Arrays.asList("pat_2", new Date(86400000L), "\uD83D\uDE00 smile", "\u5C71\u7530", "male", "", "K\u00F8benhavn", "", "", "DK"));
+
+        Path tsvDir = Files.createDirectory(tempDir.resolve("tsv"));
+        try (TsvOutputSink sink = new TsvOutputSink(tsvDir); TableWriter writer = sink.open(Table.PATIENT)) {
+            rows.forEach(writer::write);
+        }
+        Path channelDir = Files.createDirectory(tempDir.resolve("channel"));
+        try (ChannelOutputSink sink = new ChannelOutputSink(channelDir, false, 64, Map.of(), ChannelOutputSink.FsyncPolicy.NEVER); TableWriter writer = sink.open(Table.PATIENT)) {
+            rows.forEach(writer::write);
+        }
+
+        assertArrayEquals(
+                Files.readAllBytes(tsvDir.resolve(Table.PATIENT.getFileName())),
+                Files.readAllBytes(channelDir.resolve(Table.PATIENT.getFileName())));
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.output;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 18, 2026 5:58:31 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class SortingTableWriterTest {
+
+    @TempDir
+    public Path tempDir;
+
+    /**
+     * Test of write method, of class SortingTableWriter, with rows spilled to
+     * several sorted runs.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testWrite() throws IOException {
+        List<String> ids = new LinkedList<>();
+        TableWriter collector = new TableWriter() {
+            @Override
+            public void write(List<?> row) {
+                ids.add((String) row.get(0));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        int[] keyColumns = SortingOutputSink.parseSortKeys("observations:patient_id,effective").get(Table.OBSERVATION);
+        try (SortingTableWriter writer = new SortingTableWriter(collector, Table.OBSERVATION, keyColumns, 2, tempDir)) {
+            writer.write(Arrays.asList("obs_1", new Date(300), "pat_10", "enc_1"));
+            writer.write(Arrays.asList("obs_2", new Date(200), "pat_2", "enc_2"));
+            writer.write(Arrays.asList("obs_3", new Date(100), "pat_10", "enc_1"));
+            writer.write(Arrays.asList("obs_4", new Date(200), "pat_2", "enc_2"));
+            writer.write(Arrays.asList("obs_5", new Date(100), "null", "enc_3"));
+        }
+
+        // pat_2 before pat_10, ties in written order, invalid patient last
+        assertEquals(Arrays.asList("obs_2", "obs_4", "obs_3", "obs_1", "obs_5"), ids);
+    }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.benchmark.CorpusGenerator;
+import edu.pitt.dbmi.brainai.demo.data.mapping.BundleProjection;
+import edu.pitt.dbmi.brainai.demo.data.mapping.IdMaps;
+import edu.pitt.dbmi.brainai.demo.data.mapping.MappingEngine;
+import edu.pitt.dbmi.brainai.demo.data.output.TableWriters;
+import edu.pitt.dbmi.brainai.demo.data.output.TsvOutputSink;
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Maps the test corpus with the full mappings on the test thread and checks
+ * the bytes allocated per bundle and per output row against the budgets in
+ * allocation-budgets.properties, and the output against the golden files in
+ * src/test/resources/golden/full.
+ *
+ * The bundles are mapped in file name order so the custom IDs, and so the
+ * golden files, do not depend on the order of the directory listing. Run
+ * with -Dgolden.update=true to record the golden files after an intended
+ * change of the output.
+ *
+ * Oct 18, 2026 11:41:32 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class AllocationBudgetTest {
+
+    private static final Path GOLDEN_DIR = Paths.get("src", "test", "resources", "golden", "full");
+
+    /**
+     * Number of bundles replicated from the test corpus to measure the row
+     * allocations on.
+     */
+    private static final int REPLICATED_CORPUS_SIZE = 45;
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @TempDir
+    public Path tempDir;
+
+    private static Path dataDir;
+    private static List<Path> files;
+    private static Properties budgets;
+
+    @BeforeAll
+    public static void setUpClass() throws IOException, URISyntaxException {
+        Assumptions.assumeTrue(THREAD_MX_BEAN.isThreadAllocatedMemorySupported(), "Thread allocation counters are not supported.");
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+
+        dataDir = Paths.get(AllocationBudgetTest.class.getResource("/data/synthea").toURI());
+        files = new ArrayList<>(FileUtils.listBundleFiles(dataDir));
+        files.sort(null);
+
+        budgets = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(in);
+        }
+    }
+
+    /**
+     * Test the bytes allocated to read, parse and project a bundle.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testBundleAllocation() throws IOException {
+        MappingEngine mappingEngine = new MappingEngine(SyntheaMappings.FULL);
+        projectAll(mappingEngine);
+
+        long allocatedBytes = getAllocatedBytes();
+        projectAll(mappingEngine);
+        long bytesPerBundle = (getAllocatedBytes() - allocatedBytes) / files.size();
+
+        System.out.printf("Allocated bytes per bundle: %d%n", bytesPerBundle);
+        Assertions.assertTrue(bytesPerBundle <= getBudget("bundle"),
+                String.format("%d bytes allocated per bundle, over the budget of %d.", bytesPerBundle, getBudget("bundle")));
+    }
+
+    /**
+     * Test the bytes allocated to write a row of each table to an open
+     * writer. The rows are those of a corpus replicated from the test corpus,
+     * so the custom IDs are all assigned during the measure, and the bytes
+     * allocated by the same writes without rows are subtracted.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRowAllocation() throws IOException {
+        Path corpusDir = FileUtils.createSubDir(tempDir, "corpus");
+        new CorpusGenerator(dataDir, 44).generate(corpusDir, REPLICATED_CORPUS_SIZE);
+        List<Path> corpusFiles = new ArrayList<>(FileUtils.listBundleFiles(corpusDir));
+        corpusFiles.sort(null);
+
+        List<String> failures = new ArrayList<>();
+        for (Table table : new MappingEngine(SyntheaMappings.FULL).getTables()) {
+            MappingEngine mappingEngine = new MappingEngine(SyntheaMappings.FULL, Set.of(table), Set.of());
+            List<BundleProjection> projections = projectAll(mappingEngine, corpusFiles);
+            List<BundleProjection> emptyProjections = Collections.nCopies(projections.size(), new BundleProjection());
+
+            writeAll(mappingEngine, projectAll(mappingEngine), FileUtils.createSubDir(tempDir, table.getName() + "-warm-up"));
+            Path outDir = FileUtils.createSubDir(tempDir, table.getName());
+            IdMaps idMaps = new IdMaps();
+            long baselineBytes;
+            long bytes;
+            try (TableWriters writers = TableWriters.open(new TsvOutputSink(outDir), mappingEngine.getTables())) {
+                long allocatedBytes = getAllocatedBytes();
+                writeAll(mappingEngine, emptyProjections, idMaps, writers);
+                baselineBytes = getAllocatedBytes() - allocatedBytes;
+
+                allocatedBytes = getAllocatedBytes();
+                writeAll(mappingEngine, projections, idMaps, writers);
+                bytes = getAllocatedBytes() - allocatedBytes;
+            }
+
+            long numOfRows = Files.readAllLines(outDir.resolve(table.getFileName())).size() - 1;
+            if (numOfRows == 0) {
+                continue;
+            }
+            long bytesPerRow = (bytes - baselineBytes) / numOfRows;
+            System.out.printf("Allocated bytes per %s row: %d%n", table.getName(), bytesPerRow);
+            if (bytesPerRow > getBudget(table.getName())) {
+                failures.add(String.format("%s: %d bytes allocated per row, over the budget of %d", table.getName(), bytesPerRow, getBudget(table.getName())));
+            }
+        }
+
+        Assertions.assertTrue(failures.isEmpty(), String.join(System.lineSeparator(), failures));
+    }
+
+    /**
+     * Test that the output is byte-identical to the golden files.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testGoldenOutput() throws IOException {
+        MappingEngine mappingEngine = new MappingEngine(SyntheaMappings.FULL);
+        Path outDir = FileUtils.createSubDir(tempDir, "golden");
+        writeAll(mappingEngine, projectAll(mappingEngine), outDir);
+
+        if (Boolean.getBoolean("golden.update")) {
+            Files.createDirectories(GOLDEN_DIR);
+            for (Table table : mappingEngine.getTables()) {
+                Files.copy(outDir.resolve(table.getFileName()), GOLDEN_DIR.resolve(table.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+
+        Assertions.assertTrue(Files.isDirectory(GOLDEN_DIR), "No golden files; record them with -Dgolden.update=true.");
+        for (Table table : mappingEngine.getTables()) {
+            Assertions.assertArrayEquals(
+                    Files.readAllBytes(GOLDEN_DIR.resolve(table.getFileName())),
+                    Files.readAllBytes(outDir.resolve(table.getFileName())),
+                    String.format("%s differs from the golden file.", table.getFileName()));
+        }
+    }
+
+    private static List<BundleProjection> projectAll(MappingEngine mappingEngine) throws IOException {
+        return projectAll(mappingEngine, files);
+    }
+
+    private static List<BundleProjection> projectAll(MappingEngine mappingEngine, List<Path> files) throws IOException {
+        List<BundleProjection> projections = new ArrayList<>(files.size());
+        for (Path file : files) {
+            projections.add(AbstractSyntheaDataMapper.project(file, mappingEngine, null));
+        }
+
+        return projections;
+    }
+
+    private static void writeAll(MappingEngine mappingEngine, List<BundleProjection> projections, Path outDir) throws IOException {
+        try (TableWriters writers = TableWriters.open(new TsvOutputSink(outDir), mappingEngine.getTables())) {
+            writeAll(mappingEngine, projections, new IdMaps(), writers);
+        }
+    }
+
+    private static void writeAll(MappingEngine mappingEngine, List<BundleProjection> projections, IdMaps idMaps, TableWriters writers) {
+        for (BundleProjection projection : projections) {
+            mappingEngine.write(projection, idMaps, writers);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        return THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long getBudget(String name) {
+        String budget = budgets.getProperty(name);
+        Assertions.assertNotNull(budget, String.format("No allocation budget for %s.", name));
+
+        return Long.parseLong(budget.trim());
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 19, 2026 1:02:58 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CohortPrefilterTest {
+
+    @TempDir
+    public Path tempDir;
+
+    /**
+     * Test of accept method, of class CohortPrefilter.
+     */
+    @Test
+    public void testAccept() {
+        CohortPrefilter prefilter = new CohortPrefilter(List.of("MedicationAdministration"), LocalDate.parse("1950-01-01"), null);
+
+        Assertions.assertTrue(accept(prefilter, "{\"entry\": [{\"resource\": {\"resourceType\": \"Patient\", \"birthDate\": \"1962-10-08\"}},"
+                + " {\"resource\": {\"resourceType\" : \"MedicationAdministration\"}}]}"));
+        Assertions.assertTrue(accept(prefilter, "{\"resourceType\":\"Patient\",\"birthDate\":\"1962-10-08\"}\n{\"resourceType\":\"MedicationAdministration\"}\n"));
+
+        // born too early
+        Assertions.assertFalse(accept(prefilter, "{\"resourceType\": \"Patient\", \"birthDate\": \"1949-10-09\"}\n{\"resourceType\": \"MedicationAdministration\"}"));
+        // no medication administration; the marker in the narrative is not a key
+        Assertions.assertFalse(accept(prefilter, "{\"resourceType\": \"Patient\", \"birthDate\": \"1962-10-08\","
+                + " \"text\": {\"div\": \"\\\"resourceType\\\": \\\"MedicationAdministration\\\"\"}}"));
+        // no birth date
+        Assertions.assertFalse(accept(prefilter, "{\"resourceType\": \"Patient\"}\n{\"resourceType\": \"MedicationAdministration\"}"));
+        // no patient, e.g. shared organizations
+        Assertions.assertTrue(accept(prefilter, "{\"resourceType\": \"Organization\", \"name\": \"resourceType\"}"));
+    }
+
+    /**
+     * Test of accept method, of class CohortPrefilter, reading a stream a few
+     * bytes at a time, so keys and values span reads, and stopping once the
+     * decision is made.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testAcceptStream() throws IOException {
+        CohortPrefilter prefilter = new CohortPrefilter(List.of("MedicationAdministration"), LocalDate.parse("1950-01-01"), null);
+        String content = "{\"entry\": [{\"resource\": {\"resourceType\": \"Patient\", \"birthDate\": \"1962-10-08\"}},"
+                + " {\"resource\": {\"resourceType\" : \"MedicationAdministration\"}}, {\"resource\": {\"resourceType\": \"Observation\"}}]}";
+        String decided = content.substring(0, content.indexOf("MedicationAdministration") + "MedicationAdministration\"".length());
+
+        TrickleInputStream in = new TrickleInputStream(content);
+        Assertions.assertTrue(prefilter.accept(in));
+        Assertions.assertTrue(in.getNumOfBytesRead() < content.length());
+        Assertions.assertTrue(in.getNumOfBytesRead() >= decided.length());
+
+        // born too early, decided at the birth date
+        in = new TrickleInputStream("{\"resourceType\": \"Patient\", \"birthDate\": \"1949-10-09\"}\n{\"resourceType\": \"MedicationAdministration\"}");
+        Assertions.assertFalse(prefilter.accept(in));
+        // no patient, read to the end
+        Assertions.assertTrue(prefilter.accept(new TrickleInputStream("{\"resourceType\": \"Organization\", \"name\": \"resourceType\"}")));
+    }
+
+    /**
+     * Test of accept method, of class CohortPrefilter, on files. An NDJSON
+     * file may hold many patients, so it is accepted whatever its first
+     * patient.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testAcceptFile() throws IOException {
+        CohortPrefilter prefilter = new CohortPrefilter(List.of(), LocalDate.parse("1950-01-01"), null);
+        String content = "{\"resourceType\": \"Patient\", \"birthDate\": \"1949-10-09\"}\n{\"resourceType\": \"Patient\", \"birthDate\": \"1962-10-08\"}\n";
+
+        Assertions.assertFalse(prefilter.accept(Files.writeString(tempDir.resolve("bundle.json"), content)));
+        Assertions.assertTrue(prefilter.accept(Files.writeString(tempDir.resolve("Patient.ndjson"), content)));
+    }
+
+    private static boolean accept(CohortPrefilter prefilter, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+        return prefilter.accept(bytes, bytes.length);
+    }
+
+    /**
+     * Returns at most three bytes per read.
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+
+        public TrickleInputStream(String content) {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int offset, int length) {
+            return super.read(bytes, offset, Math.min(length, 3));
+        }
+
+        public int getNumOfBytesRead() {
+            return pos;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 19, 2026 10:48:16 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class CorpusIndexTest {
+
+    @TempDir
+    public static Path tempDir;
+
+    /**
+     * Test of index method, of class CorpusIndex. The summary is read back
+     * unchanged, with the organizations the encounters are provided by. A
+     * touched file is recognized by its content hash; an edited file is
+     * summarized again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testIndex() throws Exception {
+        Path dataDir = Files.createDirectory(tempDir.resolve("data"));
+        Path file = Files.copy(Paths.get(CorpusIndexTest.class.getResource("/data/synthea/Belen306_Schmeler639_049639b3-ee64-4e48-b0ac-8e26d0a21738.json").toURI()),
+                dataDir.resolve("bundle.json"));
+        Path indexFile = tempDir.resolve("index.tsv");
+        CorpusIndex.index(dataDir, List.of(file), null).write(indexFile);
+        CorpusIndex.Entry entry = CorpusIndex.read(indexFile, dataDir).getCurrent(file);
+        Assertions.assertNotNull(entry);
+        Assertions.assertTrue(entry.hasPatient());
+        Assertions.assertEquals(CorpusIndex.index(dataDir, List.of(file), null).getCurrent(file), entry);
+        Assertions.assertFalse(entry.serviceProviderIds().isEmpty());
+        Assertions.assertTrue(entry.organizationIds().containsAll(entry.serviceProviderIds()));
+
+        // touched
+        Files.setLastModifiedTime(file, FileTime.fromMillis(entry.lastModified() + 60_000));
+        CorpusIndex index = CorpusIndex.read(indexFile, dataDir);
+        Assertions.assertNull(index.getCurrent(file));
+        CorpusIndex.Entry touched = index.getUnchanged(file, entry.hash());
+        Assertions.assertEquals(entry.lastModified() + 60_000, touched.lastModified());
+        Assertions.assertEquals(entry.patientId(), touched.patientId());
+        Assertions.assertEquals(entry.numOfObservations(), touched.numOfObservations());
+        Assertions.assertEquals(touched, CorpusIndex.index(dataDir, List.of(file), index).getCurrent(file));
+
+        // edited
+        Files.writeString(file, "\n", StandardOpenOption.APPEND);
+        Assertions.assertNull(index.getUnchanged(file, FileUtils.hash(file)));
+        CorpusIndex.Entry edited = CorpusIndex.index(dataDir, List.of(file), index).getCurrent(file);
+        Assertions.assertNotEquals(entry.hash(), edited.hash());
+        Assertions.assertEquals(entry.numOfObservations(), edited.numOfObservations());
+    }
+
+}
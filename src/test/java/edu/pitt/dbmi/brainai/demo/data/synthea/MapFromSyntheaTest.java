@@ -18,9 +18,25 @@
  */
 package edu.pitt.dbmi.brainai.demo.data.synthea;
 
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.benchmark.CorpusGenerator;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
 import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -47,4 +63,241 @@ public class MapFromSyntheaTest {
         MapFromSynthea.main(new String[]{dir, outDir});
     }
 
+    /**
+     * Test of main method, of class MapFromSynthea, exporting deltas. The
+     * second export has nothing after the recorded watermark.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMainWithWatermark() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        String watermarkFile = tempDir.resolve("watermark.txt").toString();
+        Path firstOutDir = FileUtils.createSubDir(tempDir, "synthea-delta-1");
+        Path secondOutDir = FileUtils.createSubDir(tempDir, "synthea-delta-2");
+
+        MapFromSynthea.main(new String[]{dir, firstOutDir.toString(), "--watermark-file=" + watermarkFile});
+        Assertions.assertTrue(Files.exists(Paths.get(watermarkFile)));
+        Assertions.assertTrue(Files.readAllLines(firstOutDir.resolve("observations.tsv")).size() > 1);
+
+        MapFromSynthea.main(new String[]{dir, secondOutDir.toString(), "--watermark-file=" + watermarkFile});
+        Assertions.assertEquals(1, Files.readAllLines(secondOutDir.resolve("observations.tsv")).size());
+        Assertions.assertEquals(1, Files.readAllLines(secondOutDir.resolve("patients.tsv")).size());
+    }
+
+    /**
+     * Test of map method, of class MapFromSynthea, loading into an embedded
+     * H2 database a corpus whose bundles share organizations. Each location
+     * is written once, so the primary key of the locations can be added.
+     *
+     * @throws IOException
+     * @throws SQLException
+     */
+    @Test
+    public void testMapWithSharedOrganizationsToH2() throws IOException, SQLException {
+        Path templateDir = Paths.get(MapFromSyntheaTest.class.getResource("/data/synthea").getFile());
+        Path corpusDir = tempDir.resolve("shared-organizations");
+        new CorpusGenerator(templateDir, 1).generate(corpusDir, 20);
+        Path tsvOutDir = FileUtils.createSubDir(tempDir, "synthea-shared-tsv");
+        Path h2OutDir = FileUtils.createSubDir(tempDir, "synthea-shared-h2");
+
+        new MapFromSynthea(corpusDir, tsvOutDir, Arguments.parse(new String[0], 0)).map();
+        new MapFromSynthea(corpusDir, h2OutDir, Arguments.parse(new String[]{"--output=h2"}, 0)).map();
+
+        List<String> locationLines = Files.readAllLines(tsvOutDir.resolve(Table.LOCATION.getFileName()));
+        Assertions.assertEquals(locationLines.size(), new HashSet<>(locationLines.stream().map(line -> line.split("\t")[0]).toList()).size());
+        // the copies share the 20 organizations of the 9 templates
+        Assertions.assertEquals(21, locationLines.size());
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + h2OutDir.resolve("brainai").toAbsolutePath());
+                Statement statement = connection.createStatement()) {
+            for (Table table : new Table[]{Table.PATIENT, Table.ENCOUNTER, Table.OBSERVATION, Table.MEDICATION_ADMINISTRATION, Table.LOCATION}) {
+                try (ResultSet resultSet = statement.executeQuery(String.format("SELECT COUNT(*) FROM \"%s\"", table.getName()))) {
+                    resultSet.next();
+                    Assertions.assertEquals(Files.readAllLines(tsvOutDir.resolve(table.getFileName())).size() - 1, resultSet.getLong(1), table.getName());
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE CONSTRAINT_NAME = 'pk_locations'")) {
+                resultSet.next();
+                Assertions.assertEquals(1, resultSet.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * Test of main method, of class MapFromSynthea, on multiple threads with
+     * the progress written to a status file.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMainWithStatusFile() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path statusFile = tempDir.resolve("status.txt");
+        String outDir = FileUtils.createSubDir(tempDir, "synthea-status").toString();
+        MapFromSynthea.main(new String[]{dir, outDir, "--threads=3", "--progress-interval=1", "--status-file=" + statusFile});
+
+        Assertions.assertTrue(Files.readAllLines(statusFile).contains("files: 9/9"));
+    }
+
+    /**
+     * Test of map method, of class MapFromSynthea, with a parse cache. The
+     * second run reads every projection from the cache and writes the same
+     * output.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithParseCache() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        String cacheDir = tempDir.resolve("parse-cache").toString();
+        Path firstOutDir = FileUtils.createSubDir(tempDir, "synthea-cache-1");
+        Path secondOutDir = FileUtils.createSubDir(tempDir, "synthea-cache-2");
+
+        map(dir, firstOutDir, "--parse-cache=" + cacheDir);
+        MapFromSynthea mapper = map(dir, secondOutDir, "--parse-cache=" + cacheDir);
+        Assertions.assertEquals(9, mapper.getParseCache().getNumOfHits());
+        Assertions.assertEquals(0, mapper.getParseCache().getNumOfMisses());
+        for (String fileName : new String[]{"patients.tsv", "encounters.tsv", "observations.tsv", "locations.tsv"}) {
+            Assertions.assertEquals(
+                    Files.readAllLines(firstOutDir.resolve(fileName)),
+                    Files.readAllLines(secondOutDir.resolve(fileName)));
+        }
+    }
+
+    /**
+     * Test of map method, of class MapFromSynthea, writing only some of the
+     * tables.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithTables() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path allOutDir = FileUtils.createSubDir(tempDir, "synthea-all-tables");
+        Path someOutDir = FileUtils.createSubDir(tempDir, "synthea-some-tables");
+
+        map(dir, allOutDir);
+        map(dir, someOutDir, "--tables=patients,observations");
+        Assertions.assertFalse(Files.exists(someOutDir.resolve("encounters.tsv")));
+        Assertions.assertFalse(Files.exists(someOutDir.resolve("locations.tsv")));
+        Assertions.assertEquals(
+                Files.readAllLines(allOutDir.resolve("observations.tsv")),
+                Files.readAllLines(someOutDir.resolve("observations.tsv")));
+    }
+
+    /**
+     * Test of map method, of class MapFromSynthea, extracting the bundles in
+     * small slices in parallel. The output is the same as when each bundle is
+     * extracted on one thread.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithSplitThreshold() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path wholeOutDir = FileUtils.createSubDir(tempDir, "synthea-whole-bundles");
+        Path splitOutDir = FileUtils.createSubDir(tempDir, "synthea-split-bundles");
+
+        map(dir, wholeOutDir, "--split-threshold=0");
+        map(dir, splitOutDir, "--split-threshold=16");
+        for (String fileName : new String[]{"patients.tsv", "encounters.tsv", "observations.tsv", "medication_administrations.tsv", "locations.tsv"}) {
+            Assertions.assertEquals(
+                    Files.readAllLines(wholeOutDir.resolve(fileName)),
+                    Files.readAllLines(splitOutDir.resolve(fileName)));
+        }
+    }
+
+    /**
+     * Test of map method, of class MapFromSynthea, with a row for each
+     * observation component. Each blood pressure panel gives a systolic and
+     * a diastolic row instead of a row without value.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithObservationComponents() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path defaultOutDir = FileUtils.createSubDir(tempDir, "synthea-no-components");
+        Path componentOutDir = FileUtils.createSubDir(tempDir, "synthea-components");
+
+        map(dir, defaultOutDir);
+        map(dir, componentOutDir, "--observation-components=true");
+        List<String> defaultLines = Files.readAllLines(defaultOutDir.resolve("observations.tsv"));
+        List<String> componentLines = Files.readAllLines(componentOutDir.resolve("observations.tsv"));
+        long numOfPanels = defaultLines.stream().filter(line -> line.contains("\t55284-4\t")).count();
+        Assertions.assertTrue(numOfPanels > 0);
+        Assertions.assertEquals(0, defaultLines.stream().filter(line -> line.contains("\t8462-4\t")).count());
+        Assertions.assertEquals(numOfPanels, componentLines.stream().filter(line -> line.contains("\t8462-4\t")).count());
+        Assertions.assertEquals(0, componentLines.stream().filter(line -> line.contains("\t55284-4\t")).count());
+        Assertions.assertEquals(defaultLines.size() + numOfPanels, componentLines.size());
+        Assertions.assertEquals(
+                Files.readAllLines(defaultOutDir.resolve("patients.tsv")),
+                Files.readAllLines(componentOutDir.resolve("patients.tsv")));
+    }
+
+    /**
+     * Test of map method, of class MapFromSynthea, with the normalized code
+     * dictionaries. Joining the fact tables back to their dictionaries gives
+     * the default output.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithNormalizedCodes() throws IOException {
+        String dir = MapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path defaultOutDir = FileUtils.createSubDir(tempDir, "synthea-default-codes");
+        Path normalizedOutDir = FileUtils.createSubDir(tempDir, "synthea-normalized-codes");
+
+        map(dir, defaultOutDir);
+        map(dir, normalizedOutDir, "--normalize-codes=true");
+        Assertions.assertTrue(Files.size(normalizedOutDir.resolve("observations.tsv")) < Files.size(defaultOutDir.resolve("observations.tsv")));
+        Assertions.assertEquals(
+                Files.readAllLines(defaultOutDir.resolve("observations.tsv")),
+                joinBack(normalizedOutDir.resolve("observations.tsv"), normalizedOutDir.resolve("observation_codes.tsv"), "observation_code_id"));
+        Assertions.assertEquals(
+                Files.readAllLines(defaultOutDir.resolve("medication_administrations.tsv")),
+                joinBack(normalizedOutDir.resolve("medication_administrations.tsv"), normalizedOutDir.resolve("medications.tsv"), "medication_id"));
+        Assertions.assertEquals(
+                Files.readAllLines(defaultOutDir.resolve("patients.tsv")),
+                Files.readAllLines(normalizedOutDir.resolve("patients.tsv")));
+    }
+
+    /**
+     * Run a job on the given data directory. Unlike main, map reports the
+     * failures of the job.
+     */
+    private static MapFromSynthea map(String dir, Path outDir, String... options) throws IOException {
+        MapFromSynthea mapper = new MapFromSynthea(Paths.get(dir), outDir, Arguments.parse(options, 0));
+        mapper.map();
+
+        return mapper;
+    }
+
+    /**
+     * Replace the dictionary ID column of a fact table with the columns of
+     * the dictionary row it references.
+     */
+    private static List<String> joinBack(Path factFile, Path dictionaryFile, String idHeader) throws IOException {
+        List<String> dictionaryLines = Files.readAllLines(dictionaryFile);
+        Map<String, String> dictionary = new HashMap<>();
+        for (String line : dictionaryLines) {
+            int tab = line.indexOf('\t');
+            dictionary.put(line.substring(0, tab), line.substring(tab + 1));
+        }
+
+        List<String> factLines = Files.readAllLines(factFile);
+        int idColumn = List.of(factLines.get(0).split("\t")).indexOf(idHeader);
+        dictionary.put(idHeader, dictionary.get("id"));
+
+        List<String> lines = new ArrayList<>(factLines.size());
+        for (String line : factLines) {
+            String[] fields = line.split("\t", -1);
+            fields[idColumn] = dictionary.get(fields[idColumn]);
+            lines.add(String.join("\t", fields));
+        }
+
+        return lines;
+    }
+
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * Oct 18, 2026 9:46:03 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class MappingServiceTest {
+
+    private static MappingService service;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        service = new MappingService(new InetSocketAddress("127.0.0.1", 0), 2);
+        service.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        service.close();
+    }
+
+    /**
+     * Test of mapping a posted bundle to observations.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMap() throws Exception {
+        Path file = Paths.get(MappingServiceTest.class.getResource("/data/synthea/Aaron697_Brekke496_2fa15bc7-8866-461a-9000-f739e425860a.json").toURI());
+        HttpResponse<String> response = post("/map?table=observations", HttpRequest.BodyPublishers.ofFile(file));
+
+        Assertions.assertEquals(200, response.statusCode());
+        List<String> lines = response.body().lines().toList();
+        Assertions.assertTrue(lines.get(0).startsWith("id\teffective\tpatient_id"));
+        Assertions.assertTrue(lines.size() > 1);
+        Assertions.assertTrue(lines.get(1).startsWith("obs_1\t"));
+    }
+
+    /**
+     * Test of requesting a table the mapping does not produce.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMapUnknownTable() throws Exception {
+        HttpResponse<String> response = post("/map?table=encounter_locations", HttpRequest.BodyPublishers.ofString("{}"));
+
+        Assertions.assertEquals(400, response.statusCode());
+    }
+
+    private static HttpResponse<String> post(String path, HttpRequest.BodyPublisher body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + service.getPort() + path))
+                .POST(body)
+                .build();
+
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+}
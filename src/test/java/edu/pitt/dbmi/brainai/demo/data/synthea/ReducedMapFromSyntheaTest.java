@@ -18,9 +18,24 @@
  */
 package edu.pitt.dbmi.brainai.demo.data.synthea;
 
+import edu.pitt.dbmi.brainai.demo.data.Table;
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
 import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -47,4 +62,171 @@ public class ReducedMapFromSyntheaTest {
         ReducedMapFromSynthea.main(new String[]{dir, outDir});
     }
 
+    /**
+     * Test of map method, of class ReducedMapFromSynthea, extracting the
+     * bundles in small slices in parallel. The output is the same as when each
+     * bundle is extracted on one thread.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithSplitThreshold() throws IOException {
+        String dir = ReducedMapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path wholeOutDir = FileUtils.createSubDir(tempDir, "synthea-whole-bundles");
+        Path splitOutDir = FileUtils.createSubDir(tempDir, "synthea-split-bundles");
+
+        new ReducedMapFromSynthea(Paths.get(dir), wholeOutDir, Arguments.parse(new String[]{"--split-threshold=0"}, 0)).map();
+        new ReducedMapFromSynthea(Paths.get(dir), splitOutDir, Arguments.parse(new String[]{"--split-threshold=16"}, 0)).map();
+        for (String fileName : new String[]{"patients.tsv", "encounters.tsv", "observations.tsv", "medication_administrations.tsv", "locations.tsv", "encounter_locations.tsv"}) {
+            Assertions.assertEquals(
+                    Files.readAllLines(wholeOutDir.resolve(fileName)),
+                    Files.readAllLines(splitOutDir.resolve(fileName)));
+        }
+    }
+
+    /**
+     * Test of map method, of class ReducedMapFromSynthea, loading the output
+     * into an embedded H2 database. Each table has as many rows as its TSV
+     * file, and has its primary key and foreign keys.
+     *
+     * @throws IOException
+     * @throws SQLException
+     */
+    @Test
+    public void testMainWithH2Output() throws IOException, SQLException {
+        Path dir = Paths.get(ReducedMapFromSyntheaTest.class.getResource("/data/synthea").getFile());
+        Path tsvOutDir = FileUtils.createSubDir(tempDir, "synthea-h2-tsv");
+        Path h2OutDir = FileUtils.createSubDir(tempDir, "synthea-h2");
+        new ReducedMapFromSynthea(dir, tsvOutDir, Arguments.parse(new String[0], 0)).map();
+        new ReducedMapFromSynthea(dir, h2OutDir, Arguments.parse(new String[]{"--output=h2", "--batch-size=100", "--commit-interval=500"}, 0)).map();
+
+        Table[] tables = {Table.PATIENT, Table.ENCOUNTER, Table.OBSERVATION, Table.MEDICATION_ADMINISTRATION, Table.LOCATION, Table.ENCOUNTER_LOCATION};
+        Set<String> expectedConstraints = new TreeSet<>();
+        for (Table table : tables) {
+            if (table.hasPrimaryKey()) {
+                expectedConstraints.add("pk_" + table.getName());
+            }
+            for (String header : table.getHeaders()) {
+                Table referencedTable = Table.getReferencedTable(header);
+                if (referencedTable != null && referencedTable != table) {
+                    expectedConstraints.add("fk_" + table.getName() + "_" + header);
+                }
+            }
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + h2OutDir.resolve("brainai").toAbsolutePath());
+                Statement statement = connection.createStatement()) {
+            for (Table table : tables) {
+                try (ResultSet resultSet = statement.executeQuery(String.format("SELECT COUNT(*) FROM \"%s\"", table.getName()))) {
+                    resultSet.next();
+                    Assertions.assertEquals(Files.readAllLines(tsvOutDir.resolve(table.getFileName())).size() - 1, resultSet.getLong(1), table.getName());
+                }
+            }
+
+            Set<String> constraints = new TreeSet<>();
+            try (ResultSet resultSet = statement.executeQuery("SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE CONSTRAINT_TYPE IN ('PRIMARY KEY', 'FOREIGN KEY')")) {
+                while (resultSet.next()) {
+                    constraints.add(resultSet.getString(1));
+                }
+            }
+            Assertions.assertEquals(expectedConstraints, constraints);
+        }
+    }
+
+    /**
+     * Test of map method, of class ReducedMapFromSynthea, using a corpus
+     * index to skip the bundles beyond the patient limit whose organizations
+     * are not needed. The output is the same as without the index.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMapWithIndex() throws IOException {
+        String dir = ReducedMapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        String indexFile = tempDir.resolve("index.tsv").toString();
+        Path outDir = FileUtils.createSubDir(tempDir, "synthea-index");
+        Path noIndexOutDir = FileUtils.createSubDir(tempDir, "synthea-no-index");
+        IndexSynthea.main(new String[]{dir, indexFile});
+        ReducedMapFromSynthea mapper = new ReducedMapFromSynthea(Paths.get(dir), outDir, Arguments.parse(new String[]{"--index=" + indexFile, "--max-patients=2"}, 0));
+        mapper.map();
+        new ReducedMapFromSynthea(Paths.get(dir), noIndexOutDir, Arguments.parse(new String[]{"--max-patients=2"}, 0)).map();
+
+        Assertions.assertEquals(7, mapper.getNumOfSkippedFiles());
+        Assertions.assertEquals(3, Files.readAllLines(outDir.resolve("patients.tsv")).size());
+        for (String fileName : new String[]{"patients.tsv", "encounters.tsv", "observations.tsv", "medication_administrations.tsv", "locations.tsv", "encounter_locations.tsv"}) {
+            Assertions.assertEquals(
+                    Files.readAllLines(noIndexOutDir.resolve(fileName)),
+                    Files.readAllLines(outDir.resolve(fileName)));
+        }
+    }
+
+    /**
+     * Test of main method, of class ReducedMapFromSynthea, with a cohort of
+     * patients born after 1950 with medication administrations. Two of the
+     * three patients with medication administrations are born after 1950.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMainWithCohort() throws IOException {
+        String dir = ReducedMapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path outDir = FileUtils.createSubDir(tempDir, "synthea-cohort");
+        ReducedMapFromSynthea.main(new String[]{dir, outDir.toString(), "--require-resources=MedicationAdministration", "--born-after=1950-01-01"});
+
+        Assertions.assertEquals(3, Files.readAllLines(outDir.resolve("patients.tsv")).size());
+    }
+
+    /**
+     * Test of main method, of class ReducedMapFromSynthea, parsing the bundles
+     * on multiple threads.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMainWithThreads() throws IOException {
+        String dir = ReducedMapFromSyntheaTest.class.getResource("/data/synthea").getFile();
+        Path outDir = FileUtils.createSubDir(tempDir, "synthea-threads");
+        ReducedMapFromSynthea.main(new String[]{dir, outDir.toString(), "--threads=4", "--max-patients=3"});
+
+        Assertions.assertEquals(4, Files.readAllLines(outDir.resolve("patients.tsv")).size());
+    }
+
+    /**
+     * Test of map method, of class ReducedMapFromSynthea, running two jobs
+     * concurrently in the same JVM. Each job has its own custom IDs, so both
+     * write the same output.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentJobs() throws Exception {
+        Path dir = Paths.get(ReducedMapFromSyntheaTest.class.getResource("/data/synthea").getFile());
+        Path firstOutDir = FileUtils.createSubDir(tempDir, "synthea-job-1");
+        Path secondOutDir = FileUtils.createSubDir(tempDir, "synthea-job-2");
+        Arguments arguments = Arguments.parse(new String[]{"--max-patients=5"}, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> firstJob = executor.submit(() -> {
+                (new ReducedMapFromSynthea(dir, firstOutDir, arguments)).map();
+                return null;
+            });
+            Future<?> secondJob = executor.submit(() -> {
+                (new ReducedMapFromSynthea(dir, secondOutDir, arguments)).map();
+                return null;
+            });
+            firstJob.get();
+            secondJob.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        for (String fileName : new String[]{"patients.tsv", "encounters.tsv", "observations.tsv", "encounter_locations.tsv"}) {
+            Assertions.assertEquals(
+                    Files.readAllLines(firstOutDir.resolve(fileName)),
+                    Files.readAllLines(secondOutDir.resolve(fileName)));
+        }
+        Assertions.assertTrue(Files.readAllLines(firstOutDir.resolve("patients.tsv")).get(1).startsWith("pat_1\t"));
+    }
+
 }
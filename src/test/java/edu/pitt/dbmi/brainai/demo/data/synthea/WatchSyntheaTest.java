@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.synthea;
+
+import edu.pitt.dbmi.brainai.demo.data.utils.Arguments;
+import edu.pitt.dbmi.brainai.demo.data.utils.FileUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 18, 2026 10:21:37 PM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class WatchSyntheaTest {
+
+    @TempDir
+    public static Path tempDir;
+
+    /**
+     * Test of map method, of class WatchSynthea. A file already in the
+     * directory and a file dropped into it later are both appended to the
+     * output. A truncated file in the first batch is recorded as failed, and
+     * a restarted watcher does not try it again.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMap() throws Exception {
+        Path dir = Paths.get(WatchSyntheaTest.class.getResource("/data/synthea").toURI());
+        List<Path> files = FileUtils.listBundleFiles(dir);
+        Path watchDir = FileUtils.createSubDir(tempDir, "landing");
+        Path outDir = FileUtils.createSubDir(tempDir, "synthea-watch");
+        Files.copy(files.get(0), watchDir.resolve(files.get(0).getFileName()));
+        String content = Files.readString(files.get(2));
+        Files.writeString(watchDir.resolve("truncated.json"), content.substring(0, content.length() / 2));
+
+        Arguments arguments = Arguments.parse(new String[]{"--quiet-period=100", "--batch-window=100"}, 0);
+        WatchSynthea watcher = new WatchSynthea(watchDir, outDir, arguments);
+        Thread thread = start(watcher);
+        try {
+            waitForBatches(watcher, 1);
+            Files.copy(files.get(1), watchDir.resolve(files.get(1).getFileName()));
+            waitForBatches(watcher, 2);
+        } finally {
+            // the state of every mapped batch is saved once stopped
+            watcher.stopAndWait();
+            Assertions.assertEquals(watcher.getNumOfBatches(), Files.readAllLines(outDir.resolve("watch-state.ids.files")).size());
+            thread.join();
+        }
+
+        List<String> patients = Files.readAllLines(outDir.resolve("patients.tsv"));
+        Assertions.assertEquals(3, patients.size());
+        Assertions.assertTrue(patients.get(0).startsWith("id"));
+        Assertions.assertEquals(2, Files.readAllLines(outDir.resolve("watch-state.ids.files")).size());
+        Assertions.assertEquals(List.of("truncated.json"), Files.readAllLines(outDir.resolve("watch-state.ids.failed")));
+
+        // nothing is left to map after a restart
+        WatchSynthea restartedWatcher = new WatchSynthea(watchDir, outDir, arguments);
+        Thread restartedThread = start(restartedWatcher);
+        Thread.sleep(1000);
+        restartedWatcher.stopAndWait();
+        restartedThread.join();
+        Assertions.assertEquals(0, restartedWatcher.getNumOfBatches());
+        Assertions.assertEquals(3, Files.readAllLines(outDir.resolve("patients.tsv")).size());
+    }
+
+    private static Thread start(WatchSynthea watcher) {
+        Thread thread = new Thread(() -> {
+            try {
+                watcher.map();
+            } catch (IOException exception) {
+                throw new RuntimeException(exception);
+            }
+        });
+        thread.start();
+
+        return thread;
+    }
+
+    private static void waitForBatches(WatchSynthea watcher, long numOfBatches) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (watcher.getNumOfBatches() < numOfBatches) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for a batch.");
+            Thread.sleep(50);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * Oct 19, 2026 2:03:14 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class DecimalFormatterTest {
+
+    /**
+     * Test of append method, of class DecimalFormatter, on the edges of the
+     * plain notation and of the fast path.
+     */
+    @Test
+    public void testAppend() {
+        String[] values = {
+            "0", "0.00", "-0.0", "1", "-1", "10", "120.5", "-120.50", "0.1", "0.000001", "0.0000001", "-0.0000012",
+            "1E+3", "-1.5E+2", "123.456789012345", "-999999999999999", "9999999999999999", "0.123456789012345678",
+            "12345678901234567890.123", "1E-19", "3.14159265358979323846", "72.00", "0.0001234", "9.999999999999999",
+            "173.9018914060253", "-0.12345678901234567", "999999999999999999", "1000000000000000000", "0.999999999999999999"
+        };
+        for (String value : values) {
+            BigDecimal decimal = new BigDecimal(value);
+            assertEquals(decimal.toString(), DecimalFormatter.append(decimal, new StringBuilder()).toString(), value);
+        }
+    }
+
+    /**
+     * Test of append method, of class DecimalFormatter, on random decimals,
+     * appended to the same buffer.
+     */
+    @Test
+    public void testAppendRandom() {
+        Random random = new Random(48);
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            long unscaledValue = random.nextLong() >> random.nextInt(64);
+            BigDecimal decimal = new BigDecimal(BigInteger.valueOf(unscaledValue), random.nextInt(28) - 4);
+
+            buffer.setLength(0);
+            assertEquals(decimal.toString(), DecimalFormatter.append(decimal, buffer.append('x')).substring(1));
+        }
+    }
+
+}
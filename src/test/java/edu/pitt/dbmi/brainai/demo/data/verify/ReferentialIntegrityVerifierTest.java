@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2026 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.brainai.demo.data.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * Oct 18, 2026 11:12:37 AM
+ *
+ * @author Kevin V. Bui (kvb2univpitt@gmail.com)
+ */
+public class ReferentialIntegrityVerifierTest {
+
+    @TempDir
+    public Path tempDir;
+
+    /**
+     * Test of verify method, of class ReferentialIntegrityVerifier.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testVerify() throws IOException {
+        Files.writeString(tempDir.resolve("patients.tsv"), "id\tbirth_date\npat_1\t01/01/2000\npat_2\t01/01/2001\npat_2\t01/01/2001\n");
+        Files.writeString(tempDir.resolve("encounters.tsv"), "id\tstart\tend\tpatient_id\nenc_1\ta\tb\tpat_1\nenc_2\ta\tb\tpat_3\n");
+        Files.writeString(tempDir.resolve("observations.tsv"), "id\teffective\tpatient_id\tencounter_id\nobs_1\ta\tpat_2\tenc_2\nobs_2\ta\tpat_1\tnull\nobs_3\ta\tpat_1\t");
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        long violations = (new ReferentialIntegrityVerifier(tempDir, 100, new PrintStream(report, true))).verify();
+
+        // duplicate pat_2, missing pat_3 and invalid null
+        assertEquals(3, violations);
+        assertTrue(report.toString().contains("encounters.tsv:3: patient_id 'pat_3' is not found in patients.tsv"));
+        assertTrue(report.toString().contains("observations.tsv:3: encounter_id 'null' is not a valid ID"));
+    }
+
+}